@@ -0,0 +1,362 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import dll.IUDoubleLinkedList;
+import dll.IUListWithListIterator;
+import sort.AdaptiveSort;
+import sort.BulkSort;
+import sort.IntSort;
+import sort.ParallelSort;
+import sort.Sort;
+import testbed.DomainSet;
+import testbed.Result;
+import testbed.ResultCodec;
+import testbed.ResultParser;
+import testbed.Tester;
+
+/**
+ * Benchmarks of the hot paths of the testbed: sorting, expanding and
+ * invoking the combinations of a DomainSet, reading Results files, and
+ * comparing Results. Run them all with
+ *
+ * <pre>
+ *     java bench.Benchmarks
+ * </pre>
+ *
+ * or only the ones whose names match a regex (like JMH's includes), with
+ * the number of warmup and measurement iterations if the defaults are too
+ * slow or too noisy:
+ *
+ * <pre>
+ *     java bench.Benchmarks [-w warmups] [-i iterations] [regex]
+ * </pre>
+ *
+ * Every input is made from a fixed seed, so two runs (on two versions of
+ * the testbed, say) measure the same work.
+ *
+ * @author michael
+ *
+ */
+public class Benchmarks {
+
+	private static final long SEED = 221;
+	// the cases in the generated Results file, and the methods in each
+	private static final int RESULTS_CASES = 2000;
+	private static final int RESULTS_METHODS = 8;
+
+	private final Harness harness;
+	private final Pattern filter;
+
+
+	private Benchmarks(Harness harness, Pattern filter) {
+		this.harness = harness;
+		this.filter = filter;
+	}
+
+
+	public static void main(String[] args) throws IOException {
+		int warmups = 5, iterations = 10;
+		String regex = ".*";
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-w") && i + 1 < args.length) {
+				warmups = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-i") && i + 1 < args.length) {
+				iterations = Integer.parseInt(args[++i]);
+			}
+			else {
+				regex = args[i];
+			}
+		}
+
+		System.out.println("# JVM: " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+		System.out.println("# Warmup: " + warmups + " iterations, Measurement: " + iterations + " iterations");
+		System.out.println();
+
+		Benchmarks b = new Benchmarks(new Harness(warmups, iterations), Pattern.compile(regex));
+		b.sort();
+		b.tester();
+		b.parser();
+		b.equals();
+		b.harness.printTable();
+	}
+
+
+	/**
+	 * Sort.sort and the other sorts on random lists of a few sizes, and on
+	 * nearly sorted ones
+	 */
+	private void sort() {
+		for (int n : new int[] {1000, 10000, 100000}) {
+			if (included("sort.natural.random.n=" + n)) {
+				harness.measure("sort.natural.random.n=" + n, randomLists(n), list -> {
+					Sort.sort(list);
+					return list;
+				});
+			}
+			if (included("sort.int.random.n=" + n)) {
+				harness.measure("sort.int.random.n=" + n, randomLists(n), list -> {
+					IntSort.sort(list);
+					return list;
+				});
+			}
+			if (included("sort.adaptive.random.n=" + n)) {
+				harness.measure("sort.adaptive.random.n=" + n, randomLists(n), list -> {
+					AdaptiveSort.sort(list);
+					return list;
+				});
+			}
+			if (included("sort.parallel.random.n=" + n)) {
+				try (ParallelSort parallel = new ParallelSort()) {
+					harness.measure("sort.parallel.random.n=" + n, randomLists(n), list -> {
+						parallel.sort(list);
+						return list;
+					});
+				}
+			}
+			if (included("sort.bulk.random.n=" + n)) {
+				harness.measure("sort.bulk.random.n=" + n, randomLists(n), list -> {
+					BulkSort.sort(list);
+					return list;
+				});
+			}
+		}
+		if (included("sort.natural.nearlySorted.n=100000")) {
+			harness.measure("sort.natural.nearlySorted.n=100000", nearlySortedLists(100000), list -> {
+				Sort.sort(list);
+				return list;
+			});
+		}
+		if (included("sort.adaptive.nearlySorted.n=100000")) {
+			harness.measure("sort.adaptive.nearlySorted.n=100000", nearlySortedLists(100000), list -> {
+				AdaptiveSort.sort(list);
+				return list;
+			});
+		}
+		if (included("sort.comparator.random.n=10000")) {
+			Comparator<Integer> reverse = Comparator.reverseOrder();
+			harness.measure("sort.comparator.random.n=10000", randomLists(10000), list -> {
+				Sort.sort(list, reverse);
+				return list;
+			});
+		}
+	}
+
+	/**
+	 * make lists of random Integers, the same ones every time
+	 */
+	private static Supplier<IUListWithListIterator<Integer>> randomLists(int n) {
+		Integer[] elements = new Integer[n];
+		Random rand = new Random(SEED);
+		for (int i = 0; i < n; i++) {
+			elements[i] = rand.nextInt();
+		}
+		return lists(elements);
+	}
+
+	/**
+	 * make lists of Integers in order but for a few swaps of neighbors (1 per
+	 * 100 elements), the same ones every time
+	 */
+	private static Supplier<IUListWithListIterator<Integer>> nearlySortedLists(int n) {
+		Integer[] elements = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			elements[i] = i;
+		}
+		Random rand = new Random(SEED);
+		for (int k = 0; k < n / 100; k++) {
+			int i = rand.nextInt(n - 1);
+			Integer t = elements[i];
+			elements[i] = elements[i + 1];
+			elements[i + 1] = t;
+		}
+		return lists(elements);
+	}
+
+	/**
+	 * make lists of the given elements
+	 */
+	private static Supplier<IUListWithListIterator<Integer>> lists(Integer[] elements) {
+		return () -> {
+			IUListWithListIterator<Integer> list = new IUDoubleLinkedList<Integer>();
+			for (Integer e : elements) {
+				list.add(e);
+			}
+			return list;
+		};
+	}
+
+
+	/**
+	 * Tester.getAllResults over every combination of some domains: the
+	 * expansion plus one invocation (on a worker thread) per combination
+	 */
+	private void tester() {
+		Tester tester = new Tester(Target.class, false);
+		DomainSet small = new DomainSet();
+		small.addDomain("add(int, int)", range(10), range(10));
+		small.addDomain("get(int)", range(100));
+		if (included("tester.getAllResults.combinations=200")) {
+			harness.measure("tester.getAllResults.combinations=200", () -> tester.getAllResults(Target::new, small));
+		}
+
+		// pairwise (strength 2) over 4 domains of 10 is a covering array of
+		// 128 rows instead of 10000 combinations
+		DomainSet pairwise = new DomainSet();
+		pairwise.addDomain("mix(int, int, int, int)", range(10), range(10), range(10), range(10));
+		pairwise.setStrength("mix(int, int, int, int)", 2);
+		Tester wide = new Tester(Wide.class, false);
+		if (included("tester.getAllResults.pairwise")) {
+			harness.measure("tester.getAllResults.pairwise", () -> wide.getAllResults(Wide::new, pairwise));
+		}
+	}
+
+	/**
+	 * get the Integers from 0 up to (not including) n
+	 */
+	private static Object[] range(int n) {
+		Object[] ret = new Object[n];
+		for (int i = 0; i < n; i++) {
+			ret[i] = i;
+		}
+		return ret;
+	}
+
+	/**
+	 * What the Tester benchmarks test. The methods are trivial so the
+	 * benchmarks measure the testbed rather than the methods. (Every method
+	 * of a tested class needs a domain, hence the two classes.)
+	 */
+	public static class Target {
+
+		private final int[] values = new int[100];
+
+		public int add(int a, int b) {
+			return a + b;
+		}
+
+		public int get(int i) {
+			return values[i];
+		}
+	}
+
+	public static class Wide {
+
+		public int mix(int a, int b, int c, int d) {
+			return a * 1000 + b * 100 + c * 10 + d;
+		}
+	}
+
+
+	/**
+	 * ResultParser.readResultSet on a big generated Results file: a case from
+	 * the middle of it, found by scanning (linear), found through the index
+	 * (indexed), and out of the same file converted to the binary format
+	 */
+	private void parser() throws IOException {
+		if (!included("parser.readResultSet.linear") && !included("parser.readResultSet.indexed")
+				&& !included("parser.readResultSet.binary") && !included("parser.index")) {
+			return;
+		}
+		File text = File.createTempFile("bench", ".txt");
+		File binary = File.createTempFile("bench", ".bin");
+		text.deleteOnExit();
+		binary.deleteOnExit();
+		writeResults(text);
+		ResultCodec.convert(text.getPath(), binary.getPath());
+
+		String middle = "case " + RESULTS_CASES / 2;
+		ResultParser linear = new ResultParser(text.getPath());
+		ResultParser indexed = new ResultParser(text.getPath(), true);
+		ResultParser bin = new ResultParser(binary.getPath());
+
+		if (included("parser.readResultSet.linear")) {
+			harness.measure("parser.readResultSet.linear", () -> linear.readResultSet(middle));
+		}
+		if (included("parser.readResultSet.indexed")) {
+			harness.measure("parser.readResultSet.indexed", () -> indexed.readResultSet(middle));
+		}
+		if (included("parser.readResultSet.binary")) {
+			harness.measure("parser.readResultSet.binary", () -> bin.readResultSet(middle));
+		}
+		if (included("parser.index")) {
+			// a fresh parser every time, so this is the mapping plus the index
+			harness.measure("parser.index", () -> new ResultParser(text.getPath(), true).getCaseNames());
+		}
+	}
+
+	/**
+	 * write a Results file of RESULTS_CASES cases, each with RESULTS_METHODS
+	 * methods with a mix of every kind of result
+	 */
+	private static void writeResults(File file) throws IOException {
+		String[] kinds = {"null", "true", "false", "IndexOutOfBounds", "NoSuchElement", "IllegalState", "Iterator", "ListIterator"};
+		Random rand = new Random(SEED);
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			for (int c = 0; c < RESULTS_CASES; c++) {
+				out.println("<case " + c + ">");
+				for (int m = 0; m < RESULTS_METHODS; m++) {
+					out.println("<method" + m + "(int)>");
+					for (int r = 0; r < 16; r++) {
+						switch (rand.nextInt(3)) {
+						case 0:
+							out.print(rand.nextInt(1000000));
+							break;
+						case 1:
+							out.print("\"s" + rand.nextInt(1000) + "\"");
+							break;
+						default:
+							out.print(kinds[rand.nextInt(kinds.length)]);
+						}
+						out.print(r % 8 == 7 ? "\n" : " ");
+					}
+					out.println("</method" + m + "(int)>");
+				}
+				out.println("</case " + c + ">");
+			}
+		}
+	}
+
+
+	/**
+	 * Result.equals on each kind of result it treats differently
+	 */
+	private void equals() {
+		Iterator<Object> it = new ArrayList<Object>().iterator();
+		Object[][] pairs = {
+			{12345, 12345},
+			{new IndexOutOfBoundsException(), new IndexOutOfBoundsException()},
+			{new NoSuchElementException(), new IllegalStateException()},
+			{it, new ArrayList<Object>().iterator()},
+			{null, null},
+			{"a string", "a string"},
+		};
+		String[] names = {"int", "exception", "exception.mismatch", "iterator", "null", "string"};
+		for (int i = 0; i < pairs.length; i++) {
+			String name = "result.equals." + names[i];
+			if (included(name)) {
+				Result x = new Result(pairs[i][0]);
+				Result y = new Result(pairs[i][1]);
+				harness.measure(name, () -> x.equals(y));
+			}
+		}
+	}
+
+
+	/**
+	 * determine whether the benchmark of the given name should be run
+	 */
+	private boolean included(String name) {
+		return filter.matcher(name).find();
+	}
+}
@@ -0,0 +1,191 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A small benchmark harness in the style of JMH (average time mode), with
+ * no dependencies so it runs anywhere the testbed does.
+ *
+ * <p>
+ *
+ * Every benchmark gets warmup iterations (thrown away, so the JIT has
+ * settled) and then measurement iterations, each about ITERATION_TIME long.
+ * The score is the mean time per operation over the measurement iterations,
+ * with the half-width of its 99.9% confidence interval as the error, same
+ * as JMH reports it. Results of operations go to a sink the JIT can't see
+ * through, so the work isn't optimized away.
+ *
+ * <p>
+ *
+ * None of this replaces JMH (there's no forking, and no protection against
+ * constant folding beyond the sink), but with fixed seeds and inputs the
+ * numbers are repeatable enough to catch regressions in the testbed itself.
+ *
+ * @author michael
+ *
+ */
+public class Harness {
+
+	// how long each iteration runs, in ns
+	private static final long ITERATION_TIME = 200000000L;
+	// the number of iterations to throw away and to keep
+	private final int warmups;
+	private final int iterations;
+
+	// the scores so far, for the table at the end
+	private final List<String> rows = new ArrayList<String>();
+
+	// where results go so they can't be optimized away
+	private static volatile Object sink;
+
+	// the 99.95th percentile of the t distribution for 1 to 30 degrees of freedom
+	private static final double[] T_999 = {
+		636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59,
+		4.44, 4.32, 4.22, 4.14, 4.07, 4.01, 3.97, 3.92, 3.88, 3.85,
+		3.82, 3.79, 3.77, 3.75, 3.73, 3.71, 3.69, 3.67, 3.66, 3.65
+	};
+
+
+	/**
+	 * create a new Harness
+	 *
+	 * @param warmups     the number of warmup iterations of every benchmark
+	 * @param iterations  the number of measurement iterations of every benchmark
+	 */
+	public Harness(int warmups, int iterations) {
+		if (iterations < 2) {
+			throw new IllegalArgumentException("need at least 2 iterations for an error");
+		}
+		this.warmups = warmups;
+		this.iterations = iterations;
+	}
+
+
+	/**
+	 * An operation to measure
+	 */
+	public interface Op {
+		Object run() throws Exception;
+	}
+
+
+	/**
+	 * measure an operation that's quick enough to be timed in batches
+	 *
+	 * @param name  the name of the benchmark
+	 * @param op    the operation
+	 */
+	public void measure(String name, Op op) {
+		// find a batch that takes a noticeable amount of time
+		long batch = 1;
+		while (time(op, batch) < ITERATION_TIME / 100 && batch < Long.MAX_VALUE / 2) {
+			batch *= 2;
+		}
+
+		double[] scores = new double[iterations];
+		for (int i = -warmups; i < iterations; i++) {
+			long ops = 0, elapsed = 0;
+			while (elapsed < ITERATION_TIME) {
+				elapsed += time(op, batch);
+				ops += batch;
+			}
+			if (i >= 0) {
+				scores[i] = (double) elapsed / ops;
+			}
+		}
+		report(name, scores);
+	}
+
+	/**
+	 * measure an operation that needs fresh state every time (like sorting,
+	 * which can't sort the same list twice). The state is made outside the
+	 * timing, and every operation is timed on its own, so this is only
+	 * accurate for operations that take microseconds or more.
+	 *
+	 * @param name   the name of the benchmark
+	 * @param setup  makes the state for one operation
+	 * @param op     the operation
+	 */
+	public <T> void measure(String name, Supplier<T> setup, Function<T, ?> op) {
+		double[] scores = new double[iterations];
+		for (int i = -warmups; i < iterations; i++) {
+			long ops = 0, elapsed = 0;
+			while (elapsed < ITERATION_TIME) {
+				T state = setup.get();
+				long start = System.nanoTime();
+				sink = op.apply(state);
+				elapsed += System.nanoTime() - start;
+				ops++;
+			}
+			if (i >= 0) {
+				scores[i] = (double) elapsed / ops;
+			}
+		}
+		report(name, scores);
+	}
+
+
+	/**
+	 * print the table of every score so far
+	 */
+	public void printTable() {
+		System.out.printf("%n%-52s %5s %14s   %-12s %s%n", "Benchmark", "Cnt", "Score", "Error", "Units");
+		for (String row : rows) {
+			System.out.println(row);
+		}
+	}
+
+
+	/**
+	 * time a batch of operations
+	 *
+	 * @return  the time the batch took, in ns
+	 */
+	private static long time(Op op, long batch) {
+		try {
+			long start = System.nanoTime();
+			for (long i = 0; i < batch; i++) {
+				sink = op.run();
+			}
+			return System.nanoTime() - start;
+		} catch (Exception e) {
+			throw new RuntimeException("benchmark threw", e);
+		}
+	}
+
+	/**
+	 * record (and print) the score of a benchmark
+	 */
+	private void report(String name, double[] scores) {
+		double mean = 0;
+		for (double s : scores) {
+			mean += s;
+		}
+		mean /= scores.length;
+
+		double squares = 0;
+		for (double s : scores) {
+			squares += (s - mean) * (s - mean);
+		}
+		double stddev = Math.sqrt(squares / (scores.length - 1));
+		double error = t999(scores.length - 1) * stddev / Math.sqrt(scores.length);
+
+		String row = String.format("%-52s %5d %14.3f \u00b1 %-12.3f ns/op", name, scores.length, mean, error);
+		rows.add(row);
+		System.out.println(row);
+	}
+
+	/**
+	 * get the 99.95th percentile of Student's t distribution (the multiplier
+	 * for a two-sided 99.9% confidence interval)
+	 *
+	 * @param df  the degrees of freedom
+	 * @return    the percentile (a little high beyond 30 degrees of freedom)
+	 */
+	private static double t999(int df) {
+		return T_999[Math.min(df, T_999.length) - 1];
+	}
+}
@@ -0,0 +1,186 @@
+package sort;
+
+import java.util.Comparator;
+import java.util.ListIterator;
+
+import dll.IUListWithListIterator;
+
+/**
+ * Sorts an IUListWithListIterator in time that depends on how sorted it
+ * already is, like TimSort: the sort finds the runs that are already in
+ * order (ascending, or strictly descending, which are just reversed) and
+ * merges them, so a list made of a few runs costs about n log(runs)
+ * comparisons instead of n log n.
+ *
+ * <p>
+ *
+ * The list is read once, with one ListIterator, and checked on the way.
+ * A list that's already sorted isn't written at all, and one that's in
+ * strictly descending order is written back reversed, so both cost n - 1
+ * comparisons. Anything else is merged in an array and written back in
+ * a second pass. Like BulkSort, this is stable.
+ *
+ * @author michael
+ *
+ */
+public class AdaptiveSort {
+
+	// runs shorter than this are lengthened with an insertion sort, since
+	// merging lots of tiny runs is slower than insertion sorting them
+	static final int MIN_RUN = 32;
+
+
+	private AdaptiveSort() {
+		// all static
+	}
+
+
+	/**
+	 * sort the list into the natural order of its elements
+	 *
+	 * @param list  the list to sort
+	 */
+	public static <T extends Comparable<T>> void sort(IUListWithListIterator<T> list) {
+		sort(list, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * sort the list into the order given by a Comparator. Elements the
+	 * Comparator considers equal stay in the order they were in.
+	 *
+	 * @param list  the list to sort
+	 * @param c     the Comparator that orders the elements
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(IUListWithListIterator<T> list, Comparator<T> c) {
+		if (c == null) {
+			throw new IllegalArgumentException("Comparator can't be null");
+		}
+		int n = list.size();
+		if (n < 2) {
+			return;
+		}
+
+		// read the list, noting whether it's all one ascending or descending run
+		T[] a = (T[]) new Object[n];
+		ListIterator<T> it = list.listIterator();
+		a[0] = it.next();
+		boolean ascending = true, descending = true;
+		for (int i = 1; i < n; i++) {
+			a[i] = it.next();
+			if (ascending || descending) {
+				int cmp = c.compare(a[i], a[i - 1]);
+				ascending &= cmp >= 0;
+				descending &= cmp < 0;
+			}
+		}
+
+		if (ascending) {
+			return;
+		}
+		if (descending) {
+			// the iterator is at the end of the list, so walk back over it
+			for (int i = 0; i < n; i++) {
+				it.previous();
+				it.set(a[i]);
+			}
+			return;
+		}
+
+		sort(a, c);
+		BulkSort.fill(list, a);
+	}
+
+
+	/**
+	 * sort an array by merging its natural runs
+	 *
+	 * @param a  the array to sort
+	 * @param c  the Comparator that orders the elements
+	 */
+	static <T> void sort(T[] a, Comparator<? super T> c) {
+		int n = a.length;
+
+		// find the runs (where each one ends), reversing the descending ones.
+		// Every run but the last is at least MIN_RUN long.
+		int[] ends = new int[n / MIN_RUN + 1];
+		int runs = 0;
+		for (int from = 0; from < n; ) {
+			int to = from + 1;
+			if (to < n && c.compare(a[to], a[from]) < 0) {
+				while (to < n && c.compare(a[to], a[to - 1]) < 0) {
+					to++;
+				}
+				reverse(a, from, to);
+			}
+			else {
+				while (to < n && c.compare(a[to], a[to - 1]) >= 0) {
+					to++;
+				}
+			}
+			if (to - from < MIN_RUN && to < n) {
+				int end = Math.min(n, from + MIN_RUN);
+				insertionSort(a, from, to, end, c);
+				to = end;
+			}
+			ends[runs++] = to;
+			from = to;
+		}
+
+		// merge neighboring runs, halving the number of runs every pass
+		T[] src = a, dest = a.clone();
+		while (runs > 1) {
+			int merged = 0;
+			for (int r = 0; r < runs; r += 2) {
+				int from = r == 0 ? 0 : ends[r - 1];
+				if (r + 1 == runs) {
+					// the odd one out
+					System.arraycopy(src, from, dest, from, ends[r] - from);
+				}
+				else if (c.compare(src[ends[r] - 1], src[ends[r]]) <= 0) {
+					// already in order
+					System.arraycopy(src, from, dest, from, ends[r + 1] - from);
+				}
+				else {
+					BulkSort.merge(src, from, ends[r], ends[r + 1], dest, c);
+				}
+				ends[merged++] = ends[Math.min(r + 1, runs - 1)];
+			}
+			runs = merged;
+			T[] t = src;
+			src = dest;
+			dest = t;
+		}
+
+		if (src != a) {
+			System.arraycopy(src, 0, a, 0, n);
+		}
+	}
+
+	/**
+	 * reverse the range [from, to) of an array
+	 */
+	private static void reverse(Object[] a, int from, int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			Object t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	/**
+	 * insertion sort the range [from, to) of an array, given that [from, sorted)
+	 * is already sorted
+	 */
+	private static <T> void insertionSort(T[] a, int from, int sorted, int to, Comparator<? super T> c) {
+		for (int i = sorted; i < to; i++) {
+			T x = a[i];
+			int j = i;
+			while (j > from && c.compare(x, a[j - 1]) < 0) {
+				a[j] = a[j - 1];
+				j--;
+			}
+			a[j] = x;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package sort;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import dll.IUListWithListIterator;
+
+/**
+ * Sorts an IUListWithListIterator without chasing its links for every
+ * comparison: the elements are copied out into an array in one pass of a
+ * ListIterator, sorted there, and written back in a second pass with
+ * ListIterator.set. The sort is a merge sort, so it's stable, and big
+ * arrays are sorted in parallel on the common fork-join pool.
+ *
+ * <p>
+ *
+ * Costs n extra references for the array plus n for merging, so this trades
+ * memory for speed; Sort stays the one to use when memory is tight.
+ *
+ * @author michael
+ *
+ */
+public class BulkSort {
+
+	// arrays shorter than this are sorted on the calling thread
+	static final int PARALLEL_THRESHOLD = 1 << 13;
+	// the parallel sort stops splitting at pieces this long
+	static final int SEQUENTIAL_CUTOFF = 1 << 11;
+
+
+	private BulkSort() {
+		// all static
+	}
+
+
+	/**
+	 * sort the list into the natural order of its elements
+	 *
+	 * @param list  the list to sort
+	 */
+	public static <T extends Comparable<T>> void sort(IUListWithListIterator<T> list) {
+		sort(list, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * sort the list into the order given by a Comparator. Elements the
+	 * Comparator considers equal stay in the order they were in.
+	 *
+	 * @param list  the list to sort
+	 * @param c     the Comparator that orders the elements
+	 */
+	public static <T> void sort(IUListWithListIterator<T> list, Comparator<T> c) {
+		if (c == null) {
+			throw new IllegalArgumentException("Comparator can't be null");
+		}
+		T[] a = drain(list);
+		if (a.length < 2) {
+			return;
+		}
+		sort(a, c);
+		fill(list, a);
+	}
+
+
+	/**
+	 * sort an array with a stable merge sort, in parallel if it's big enough
+	 *
+	 * @param a  the array to sort
+	 * @param c  the Comparator that orders the elements
+	 */
+	static <T> void sort(T[] a, Comparator<? super T> c) {
+		if (a.length < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2) {
+			Arrays.sort(a, c);
+		}
+		else {
+			sort(a, c, (a.length + SEQUENTIAL_CUTOFF - 1) / SEQUENTIAL_CUTOFF, ForkJoinPool.commonPool());
+		}
+	}
+
+	/**
+	 * sort an array by cutting it into roughly equal segments, sorting them
+	 * in parallel on the given pool, and merging them pairwise in a tree
+	 * (neighbors first, then neighbors of neighbors, ...)
+	 *
+	 * @param a         the array to sort
+	 * @param c         the Comparator that orders the elements
+	 * @param segments  the number of segments (1 sorts on the calling thread)
+	 * @param pool      the pool to sort the segments on
+	 */
+	static <T> void sort(T[] a, Comparator<? super T> c, int segments, ForkJoinPool pool) {
+		if (segments < 2) {
+			Arrays.sort(a, c);
+			return;
+		}
+
+		// where each segment starts (and, last, where the array ends)
+		int[] bounds = new int[segments + 1];
+		for (int i = 0; i <= segments; i++) {
+			bounds[i] = (int) ((long) a.length * i / segments);
+		}
+		pool.invoke(new MergeSort<T>(a, a.clone(), bounds, 0, segments, c));
+	}
+
+	/**
+	 * copy the elements of the list into an array, in order
+	 *
+	 * @param list  the list
+	 * @return      its elements
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T[] drain(IUListWithListIterator<T> list) {
+		Object[] a = new Object[list.size()];
+		ListIterator<T> it = list.listIterator();
+		for (int i = 0; i < a.length; i++) {
+			a[i] = it.next();
+		}
+		return (T[]) a;
+	}
+
+	/**
+	 * overwrite the elements of the list with the elements of an array
+	 * (which must be as long as the list)
+	 *
+	 * @param list  the list
+	 * @param a     its new elements
+	 */
+	static <T> void fill(IUListWithListIterator<T> list, T[] a) {
+		ListIterator<T> it = list.listIterator();
+		for (T e : a) {
+			it.next();
+			it.set(e);
+		}
+	}
+
+
+	/**
+	 * Merge sorts a range of segments of an array: one segment is sorted
+	 * outright, and more are split in half, sorted in parallel, and merged
+	 *
+	 * @author michael
+	 *
+	 */
+	private static class MergeSort<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		// the array being sorted and a scratch array of the same length
+		private final T[] a, tmp;
+		// where each segment starts
+		private final int[] bounds;
+		// the range of segments being sorted, [from, to)
+		private final int from, to;
+		private final Comparator<? super T> c;
+
+
+		MergeSort(T[] a, T[] tmp, int[] bounds, int from, int to, Comparator<? super T> c) {
+			this.a = a;
+			this.tmp = tmp;
+			this.bounds = bounds;
+			this.from = from;
+			this.to = to;
+			this.c = c;
+		}
+
+
+		@Override
+		protected void compute() {
+			int lo = bounds[from], hi = bounds[to];
+			if (to - from == 1) {
+				Arrays.sort(a, lo, hi, c);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new MergeSort<T>(a, tmp, bounds, from, mid, c), new MergeSort<T>(a, tmp, bounds, mid, to, c));
+
+			// already in order (common for input that was nearly sorted)
+			int m = bounds[mid];
+			if (c.compare(a[m - 1], a[m]) <= 0) {
+				return;
+			}
+			System.arraycopy(a, lo, tmp, lo, hi - lo);
+			merge(tmp, lo, m, hi, a, c);
+		}
+	}
+
+	/**
+	 * merge two adjacent sorted ranges of one array into the same range of
+	 * another, taking from the left range first when elements are equal
+	 *
+	 * @param src   the array with the sorted ranges [from, mid) and [mid, to)
+	 * @param dest  the array to merge into
+	 */
+	static <T> void merge(T[] src, int from, int mid, int to, T[] dest, Comparator<? super T> c) {
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to) {
+			dest[k++] = c.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+		}
+		System.arraycopy(src, i, dest, k, mid - i);
+		System.arraycopy(src, j, dest, k + mid - i, to - j);
+	}
+}
@@ -0,0 +1,127 @@
+package sort;
+
+import java.util.Arrays;
+import java.util.ListIterator;
+
+import dll.IUListWithListIterator;
+
+/**
+ * Sorts lists of Integers as ints: the values are unboxed into an int[] in
+ * one pass of a ListIterator, radix sorted (no comparisons at all, so no
+ * compareTo or Comparator calls), and written back with ListIterator.set.
+ * Descending order just writes the sorted values back from the end.
+ *
+ * <p>
+ *
+ * The list ends up holding equal values, not necessarily the same Integer
+ * objects, in each position. That's fine for anything that compares
+ * Integers with equals (and anything that doesn't is broken anyway).
+ * A null element gets a NullPointerException, same as sorting by compareTo.
+ *
+ * @author michael
+ *
+ */
+public class IntSort {
+
+	// arrays shorter than this are sorted by Arrays.sort (dual-pivot quicksort),
+	// which beats four counting passes on small inputs
+	static final int RADIX_THRESHOLD = 256;
+	// the radix sort goes a byte at a time
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+
+
+	private IntSort() {
+		// all static
+	}
+
+
+	/**
+	 * sort the list into ascending order
+	 *
+	 * @param list  the list to sort
+	 */
+	public static void sort(IUListWithListIterator<Integer> list) {
+		sort(list, false);
+	}
+
+	/**
+	 * sort the list into ascending or descending order
+	 *
+	 * @param list        the list to sort
+	 * @param descending  whether to sort into descending order instead
+	 */
+	public static void sort(IUListWithListIterator<Integer> list, boolean descending) {
+		int n = list.size();
+		if (n < 2) {
+			return;
+		}
+		int[] a = new int[n];
+		ListIterator<Integer> it = list.listIterator();
+		for (int i = 0; i < n; i++) {
+			a[i] = it.next();
+		}
+
+		sort(a);
+
+		it = list.listIterator();
+		for (int i = 0; i < n; i++) {
+			it.next();
+			it.set(a[descending ? n - 1 - i : i]);
+		}
+	}
+
+
+	/**
+	 * sort an int array into ascending order
+	 *
+	 * @param a  the array to sort
+	 */
+	static void sort(int[] a) {
+		if (a.length < RADIX_THRESHOLD) {
+			Arrays.sort(a);
+			return;
+		}
+
+		// a least significant digit radix sort of the values with their sign
+		// bits flipped, so negatives (unsigned) come before positives
+		int[] src = a, dest = new int[a.length];
+		int[] counts = new int[RADIX];
+		for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+			Arrays.fill(counts, 0);
+			for (int v : src) {
+				counts[digit(v, shift)]++;
+			}
+			// every value has the same digit here, so this pass wouldn't move anything
+			if (counts[digit(src[0], shift)] == src.length) {
+				continue;
+			}
+
+			int sum = 0;
+			for (int d = 0; d < RADIX; d++) {
+				int c = counts[d];
+				counts[d] = sum;
+				sum += c;
+			}
+			for (int v : src) {
+				dest[counts[digit(v, shift)]++] = v;
+			}
+
+			int[] t = src;
+			src = dest;
+			dest = t;
+		}
+
+		if (src != a) {
+			System.arraycopy(src, 0, a, 0, a.length);
+		}
+	}
+
+	/**
+	 * get the digit of a value at the given shift, treating the value as
+	 * unsigned with its sign bit flipped
+	 */
+	private static int digit(int v, int shift) {
+		return ((v ^ Integer.MIN_VALUE) >>> shift) & (RADIX - 1);
+	}
+}
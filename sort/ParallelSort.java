@@ -0,0 +1,161 @@
+package sort;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+
+import dll.IUListWithListIterator;
+
+/**
+ * Sorts big IUListWithListIterators on several threads. The list is read
+ * into an array in one walk and cut into roughly equal segments, one per
+ * thread; the segments are sorted concurrently and then merged pairwise
+ * in a tree (neighbors first, then neighbors of neighbors, ...), with the
+ * merges at each level of the tree also running concurrently. The result
+ * is written back in a second walk. Like BulkSort, this is stable.
+ *
+ * <p>
+ *
+ * How many threads and how small a segment can get are up to whoever makes
+ * the ParallelSort, e.g.
+ *
+ * <pre>
+ *     new ParallelSort(8, 100000).sort(list);
+ * </pre>
+ *
+ * sorts with up to 8 threads, but only gives each one at least 100000
+ * elements, so a list of 250000 is cut into 2 segments, and anything under
+ * 200000 is sorted on the calling thread.
+ *
+ * <p>
+ *
+ * A ParallelSort whose parallelism isn't the common pool's makes a pool of
+ * its own, so close it when it's no longer needed.
+ *
+ * @author michael
+ *
+ */
+public class ParallelSort implements AutoCloseable {
+
+	// the smallest segment worth a thread of its own, by default
+	public static final int DEFAULT_CUTOFF = 1 << 14;
+
+	// the most segments to sort at once
+	private final int parallelism;
+	// the smallest a segment can be
+	private final int cutoff;
+	// the pool the segments are sorted on (made when it's first needed, and
+	// shut down by close if it isn't the common pool)
+	private ForkJoinPool pool;
+
+
+	/**
+	 * create a ParallelSort that uses every processor, with the default cutoff
+	 */
+	public ParallelSort() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CUTOFF);
+	}
+
+	/**
+	 * create a ParallelSort
+	 *
+	 * @param parallelism  the most segments to sort at once (1 sorts on the
+	 *                     calling thread)
+	 * @param cutoff       the fewest elements a segment can have
+	 */
+	public ParallelSort(int parallelism, int cutoff) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		if (cutoff < 1) {
+			throw new IllegalArgumentException("cutoff must be at least 1");
+		}
+		this.parallelism = parallelism;
+		this.cutoff = cutoff;
+	}
+
+
+	/**
+	 * get the most segments this sorts at once
+	 *
+	 * @return  the parallelism
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * get the fewest elements a segment can have
+	 *
+	 * @return  the cutoff
+	 */
+	public int getCutoff() {
+		return cutoff;
+	}
+
+
+	/**
+	 * sort the list into the natural order of its elements
+	 *
+	 * @param list  the list to sort
+	 */
+	public <T extends Comparable<T>> void sort(IUListWithListIterator<T> list) {
+		sort(list, Comparator.<T>naturalOrder());
+	}
+
+	/**
+	 * sort the list into the order given by a Comparator. Elements the
+	 * Comparator considers equal stay in the order they were in.
+	 *
+	 * @param list  the list to sort
+	 * @param c     the Comparator that orders the elements
+	 */
+	public <T> void sort(IUListWithListIterator<T> list, Comparator<T> c) {
+		if (c == null) {
+			throw new IllegalArgumentException("Comparator can't be null");
+		}
+		T[] a = BulkSort.drain(list);
+		if (a.length < 2) {
+			return;
+		}
+		sort(a, c);
+		BulkSort.fill(list, a);
+	}
+
+
+	/**
+	 * sort an array, cutting it into segments
+	 *
+	 * @param a  the array to sort
+	 * @param c  the Comparator that orders the elements
+	 */
+	<T> void sort(T[] a, Comparator<? super T> c) {
+		int segments = Math.min(parallelism, Math.max(1, a.length / cutoff));
+		BulkSort.sort(a, c, segments, segments == 1 ? null : pool());
+	}
+
+	/**
+	 * shut down the pool this ParallelSort made for itself, if it made one
+	 * (the common pool is left alone). It can still sort afterwards, and
+	 * makes a new pool if it needs one.
+	 */
+	@Override
+	public synchronized void close() {
+		if (pool != null && pool != ForkJoinPool.commonPool()) {
+			pool.shutdown();
+		}
+		pool = null;
+	}
+
+	/**
+	 * get the pool to sort on: the common pool if it's the right size, or
+	 * else one of our own
+	 */
+	private synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = parallelism == ForkJoinPool.getCommonPoolParallelism()
+					? ForkJoinPool.commonPool()
+					: new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+}
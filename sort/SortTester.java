@@ -1,11 +1,13 @@
 package sort;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Random;
 
 import dll.IUDoubleLinkedList;
 import dll.IUListWithListIterator;
+import testbed.Complexity;
 
 /**
  * Tests for Sort class using IUDoubleLinkedList as an implementation of IUListWithListIterator.
@@ -16,14 +18,23 @@ public class SortTester {
 	private final boolean PRINT_ALL_TESTS;
 	private final boolean PRINT_FAILS_ONLY;
 	private final boolean PRINT_SECTION_SUMMARIES;
+	private final boolean RUN_BENCHMARK;
 
 	// named elements for use in tests
-	private static final Integer ELEMENT_A = new Integer(1);
-	private static final Integer ELEMENT_B = new Integer(2);
-	private static final Integer ELEMENT_C = new Integer(3);
-	private static final Integer ELEMENT_D = new Integer(4);
+	private static final Integer ELEMENT_A = Integer.valueOf(1);
+	private static final Integer ELEMENT_B = Integer.valueOf(2);
+	private static final Integer ELEMENT_C = Integer.valueOf(3);
+	private static final Integer ELEMENT_D = Integer.valueOf(4);
 	
 	private static final int BIG_SORT_SIZE = 20000;
+	
+	// the scaling benchmark (-b)
+	private static final int BENCH_MIN_SIZE = 1000;
+	private static final int BENCH_MAX_SIZE = 128000;
+	private static final int BENCH_SAMPLES = 7;	// timed sorts at each size
+	private static final int BENCH_WARMUP_SORTS = 50;
+	private static final double BENCH_TIME_LIMIT = 1.0;	// stop climbing the ladder once one sort takes this long (seconds)
+	private static final int BENCH_RESAMPLES = 1000;	// for the confidence intervals
 
 	private int passes = 0;
 	private int failures = 0;
@@ -33,10 +44,14 @@ public class SortTester {
 	private int secPasses = 0;
 	private int secFails = 0;
 
-	/** @param args optional parameters <-a|-f> <-s> */
+	/** @param args optional parameters <-a|-f> <-s> <-b> */
 	public static void main(String[] args) {
 		SortTester tester = new SortTester(args);
-		tester.runTests();
+		if (tester.RUN_BENCHMARK) {
+			tester.runBenchmark();
+		} else {
+			tester.runTests();
+		}
 	}
 
 	/** configure output based on command line args 
@@ -44,9 +59,16 @@ public class SortTester {
 	 * 	print all tests: -a
 	 *  print failed tests only: -f (-f overrules -a and filters all passed tests)
 	 *  print section summaries: -s (can be combined with -a or -f)
+	 *  run the scaling benchmark instead of the tests: -b (-a also prints every size)
 	 *  print only final summary: no args
 	 */
 	public SortTester(String[] args) {
+		boolean bench = false;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-b")) bench = true;
+		}
+		RUN_BENCHMARK = bench;
+		
 		if (args.length == 0) {
 			PRINT_ALL_TESTS = true;
 			PRINT_FAILS_ONLY = false;
@@ -316,6 +338,58 @@ public class SortTester {
 		printTest("testSort_CACB", testSort(listCACB(), listABCC()));
 		printTest("testSortComparator_CACB", testSort(listCACB(), listCCBA(), new ReverseComparator<Integer>()));
 		
+		//		BULK SORT (drained into an array, sorted, written back)
+		printTest("testBulkSort_newList", testBulkSort(newList(), newList()));
+		printTest("testBulkSort_A", testBulkSort(listA(), listA()));
+		printTest("testBulkSort_BA", testBulkSort(listBA(), listAB()));
+		printTest("testBulkSort_CBA", testBulkSort(listCBA(), listABC()));
+		printTest("testBulkSort_CACB", testBulkSort(listCACB(), listABCC()));
+		printTest("testBulkSortComparator_BDAC", testBulkSort(listBDAC(), listDCBA(), new ReverseComparator<Integer>()));
+		printTest("testBulkSortComparator_CACB", testBulkSort(listCACB(), listCCBA(), new ReverseComparator<Integer>()));
+		printTest("testBulkSortStable_small", testBulkSortStable(100));
+		printTest("testBulkSortStable_big", testBulkSortStable(BIG_SORT_SIZE * 5));	// big enough to sort in parallel
+
+		if (PRINT_SECTION_SUMMARIES) printSectionSummary("Bulk Sort");
+
+		//		INT SORT (unboxed into an int[] and radix sorted)
+		printTest("testIntSort_newList", testIntSort(newList(), newList(), false));
+		printTest("testIntSort_A", testIntSort(listA(), listA(), false));
+		printTest("testIntSort_CBA", testIntSort(listCBA(), listABC(), false));
+		printTest("testIntSort_CACB", testIntSort(listCACB(), listABCC(), false));
+		printTest("testIntSortDescending_BDAC", testIntSort(listBDAC(), listDCBA(), true));
+		printTest("testIntSortDescending_CACB", testIntSort(listCACB(), listCCBA(), true));
+		printTest("testIntSort_big", testIntSortBig(BIG_SORT_SIZE, false));	// big enough to radix sort
+		printTest("testIntSortDescending_big", testIntSortBig(BIG_SORT_SIZE, true));
+
+		if (PRINT_SECTION_SUMMARIES) printSectionSummary("Int Sort");
+
+		//		ADAPTIVE SORT (merges the runs already in the list)
+		printTest("testAdaptiveSort_newList", testAdaptiveSort(newList(), newList(), null));
+		printTest("testAdaptiveSort_A", testAdaptiveSort(listA(), listA(), null));
+		printTest("testAdaptiveSort_ABC", testAdaptiveSort(listABC(), listABC(), null));
+		printTest("testAdaptiveSort_CBA", testAdaptiveSort(listCBA(), listABC(), null));
+		printTest("testAdaptiveSort_CACB", testAdaptiveSort(listCACB(), listABCC(), null));
+		printTest("testAdaptiveSortComparator_BDAC", testAdaptiveSort(listBDAC(), listDCBA(), new ReverseComparator<Integer>()));
+		printTest("testAdaptiveSortComparator_CCBA", testAdaptiveSort(listCCBA(), listCCBA(), new ReverseComparator<Integer>()));
+		for (Shape shape : Shape.values()) {
+			printTest("testAdaptiveSortStable_" + shape, testAdaptiveSortStable(shape, BIG_SORT_SIZE));
+		}
+
+		if (PRINT_SECTION_SUMMARIES) printSectionSummary("Adaptive Sort");
+
+		//		PARALLEL SORT (segments sorted concurrently, then merged)
+		printTest("testParallelSort_newList", testParallelSort(new ParallelSort(4, 1), newList(), newList(), null));
+		printTest("testParallelSort_A", testParallelSort(new ParallelSort(4, 1), listA(), listA(), null));
+		printTest("testParallelSort_CBA", testParallelSort(new ParallelSort(3, 1), listCBA(), listABC(), null));	// one segment each
+		printTest("testParallelSort_CACB", testParallelSort(new ParallelSort(4, 1), listCACB(), listABCC(), null));
+		printTest("testParallelSortComparator_BDAC", testParallelSort(new ParallelSort(2, 1), listBDAC(), listDCBA(), new ReverseComparator<Integer>()));
+		printTest("testParallelSortStable_sequential", testParallelSortStable(new ParallelSort(1, 1), BIG_SORT_SIZE));
+		printTest("testParallelSortStable_2", testParallelSortStable(new ParallelSort(2, 1000), BIG_SORT_SIZE));
+		printTest("testParallelSortStable_7", testParallelSortStable(new ParallelSort(7, 1000), BIG_SORT_SIZE));	// uneven segments
+		printTest("testParallelSortStable_cutoff", testParallelSortStable(new ParallelSort(64, 5000), BIG_SORT_SIZE));	// 4 segments
+
+		if (PRINT_SECTION_SUMMARIES) printSectionSummary("Parallel Sort");
+
 		// FINAL RESULTS (in case big list times out)
 		printFinalSummary();
 		System.out.println("(untimed tests, in case remaining tests time out)");
@@ -335,20 +409,20 @@ public class SortTester {
 	/** @return true if test passes, else false */
 	private boolean testTimeToSortBigList() {
 		final int bigNum = BIG_SORT_SIZE; //okay, not THAT big
-		final double maxTime = 0.02;
-		final double targetTime = 0.01;
+		final double maxTime = 0.2;
+		final double targetTime = 0.1;
 		try {
 			IUListWithListIterator<Integer> list1 = newList();
 			Random rand = new Random(123);
 			for (int i = 0; i < bigNum; i++) {
-				list1.add(new Integer(rand.nextInt()));
+				list1.add(Integer.valueOf(rand.nextInt()));
 			}
 
 			long startTime = System.nanoTime();
 			Sort.sort(list1);
 			long endTime = System.nanoTime();
 			long totalTime = endTime - startTime;
-			double seconds = (double)totalTime/10e9;
+			double seconds = (double)totalTime/1e9;
 			System.out.printf("\nTime to sort %d random integers: %.3f seconds\n", bigNum, seconds);
 			System.out.printf("Target time < %.3f seconds. Time > %.3f suggests O(n^2) runtime.\n", targetTime, maxTime);
 
@@ -362,20 +436,20 @@ public class SortTester {
 	/** @return true if test passes, else false */
 	private boolean testTimeToSortComparatorBigList() {
 		final int bigNum = BIG_SORT_SIZE; //okay, not THAT big
-		final double maxTime = 0.02;
-		final double targetTime = 0.01;
+		final double maxTime = 0.2;
+		final double targetTime = 0.1;
 		try {
 			IUListWithListIterator<Integer> list1 = newList();
 			Random rand = new Random(123);
 			for (int i = 0; i < bigNum; i++) {
-				list1.add(new Integer(rand.nextInt()));
+				list1.add(Integer.valueOf(rand.nextInt()));
 			}
 
 			long startTime = System.nanoTime();
 			Sort.sort(list1, new ReverseComparator<Integer>());
 			long endTime = System.nanoTime();
 			long totalTime = endTime - startTime;
-			double seconds = (double)totalTime/10e9;
+			double seconds = (double)totalTime/1e9;
 			System.out.printf("\nTime to sort %d random integers: %.3f seconds\n", bigNum, seconds);
 			System.out.printf("Target time < %.3f seconds. Time > %.3f suggests O(n^2) runtime.\n", targetTime, maxTime);
 
@@ -386,6 +460,175 @@ public class SortTester {
 		}
 	}	
 	
+	////////////////////////
+	// XXX SCALING BENCHMARK
+	////////////////////////
+	
+	/** the kinds of input the benchmark sorts */
+	private enum Shape {
+		RANDOM, SORTED, REVERSED, DUPLICATES, NEARLY_SORTED;
+		
+		/** @return n elements of this shape (the same ones every time for the same n) */
+		Integer[] elements(int n) {
+			Random rand = new Random(n);
+			Integer[] elements = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				switch (this) {
+				case RANDOM:
+					elements[i] = rand.nextInt();
+					break;
+				case SORTED:
+					elements[i] = i;
+					break;
+				case REVERSED:
+					elements[i] = n - i;
+					break;
+				case NEARLY_SORTED:
+					elements[i] = i;
+					break;
+				default:
+					elements[i] = rand.nextInt(10);
+				}
+			}
+			if (this == NEARLY_SORTED) {
+				// a few local swaps, 1 per 100 elements
+				for (int k = 0; k < n / 100; k++) {
+					int i = rand.nextInt(n - 1);
+					Integer t = elements[i];
+					elements[i] = elements[i + 1];
+					elements[i + 1] = t;
+				}
+			}
+			return elements;
+		}
+	}
+	
+	/**
+	 * Time Sort.sort and the Comparator overload over a geometric ladder of sizes
+	 * for every Shape of input, and report the order of growth that fits each best.
+	 * 
+	 * Every size is sorted BENCH_SAMPLES times and the median is used. The
+	 * confidence intervals come from resampling those samples (a bootstrap):
+	 * how often each order still fits best, and the 95% interval of the
+	 * empirical exponent (time ~ n^exponent: about 1.1 for n log n, 2 for n^2).
+	 */
+	private void runBenchmark() {
+		System.out.printf("Warming up (%d sorts)...\n", BENCH_WARMUP_SORTS);
+		for (int i = 0; i < BENCH_WARMUP_SORTS; i++) {
+			// every shape, both overloads, small and big (so the JIT sees all of it)
+			Shape shape = Shape.values()[i % Shape.values().length];
+			int n = i % 2 == 0 ? BENCH_MIN_SIZE : BENCH_MIN_SIZE * 16;
+			timeSort(shape.elements(n), null);
+			timeSort(shape.elements(n), new ReverseComparator<Integer>());
+		}
+		
+		System.out.printf("Sizes %d to %d (doubling), %d samples each\n\n", BENCH_MIN_SIZE, BENCH_MAX_SIZE, BENCH_SAMPLES);
+		for (Shape shape : Shape.values()) {
+			benchmark("sort", shape, null);
+			benchmark("sort(Comparator)", shape, new ReverseComparator<Integer>());
+		}
+	}
+	
+	/**
+	 * Run and report the benchmark of one overload on one Shape of input
+	 * @param name the name of the overload
+	 * @param shape the Shape of the input
+	 * @param c the Comparator to sort with, or null to use the natural order
+	 */
+	private void benchmark(String name, Shape shape, Comparator<Integer> c) {
+		// samples[s][k] is the time (ns) of the kth sort of the sth size
+		double[][] samples = new double[0][];
+		int[] sizes = new int[0];
+		
+		for (int n = BENCH_MIN_SIZE; n <= BENCH_MAX_SIZE; n *= 2) {
+			double[] times = new double[BENCH_SAMPLES];
+			Integer[] elements = shape.elements(n);
+			// (so garbage from the last size isn't collected during this one)
+			System.gc();
+			for (int k = 0; k < BENCH_SAMPLES; k++) {
+				times[k] = timeSort(elements, c);
+			}
+			sizes = Arrays.copyOf(sizes, sizes.length + 1);
+			sizes[sizes.length - 1] = n;
+			samples = Arrays.copyOf(samples, samples.length + 1);
+			samples[samples.length - 1] = times;
+			
+			if (PRINT_ALL_TESTS) {
+				System.out.printf("  %-16s %-13s n=%-7d median %9.3f ms\n", name, shape, n, median(times) / 1e6);
+			}
+			// the next size would take too long (a quadratic sort at 128000 could take minutes)
+			if (median(times) / 1e9 > BENCH_TIME_LIMIT) {
+				break;
+			}
+		}
+		
+		String label = String.format("%-16s %-13s", name, shape);
+		if (sizes.length < 3) {
+			System.out.printf("%s only %d sizes finished in time; too slow to fit\n", label, sizes.length);
+			return;
+		}
+		
+		double[] n = new double[sizes.length];
+		double[] medians = new double[sizes.length];
+		for (int s = 0; s < sizes.length; s++) {
+			n[s] = sizes[s];
+			medians[s] = median(samples[s]);
+		}
+		Complexity.Fit fit = Complexity.bestFit(n, medians);
+		
+		// bootstrap: refit with the samples at every size drawn again (with replacement)
+		Random rand = new Random(42);
+		int agree = 0;
+		double[] exponents = new double[BENCH_RESAMPLES];
+		for (int b = 0; b < BENCH_RESAMPLES; b++) {
+			double[] resampled = new double[sizes.length];
+			for (int s = 0; s < sizes.length; s++) {
+				double[] draw = new double[samples[s].length];
+				for (int k = 0; k < draw.length; k++) {
+					draw[k] = samples[s][rand.nextInt(draw.length)];
+				}
+				resampled[s] = median(draw);
+			}
+			if (Complexity.bestFit(n, resampled).getComplexity() == fit.getComplexity()) {
+				agree++;
+			}
+			exponents[b] = Complexity.exponent(n, resampled);
+		}
+		Arrays.sort(exponents);
+		
+		System.out.printf("%s %-10s fits best in %3.0f%% of resamples, exponent %.2f [%.2f, %.2f], %.3f ms at n=%d\n", 
+				label, fit.getComplexity(), 100.0 * agree / BENCH_RESAMPLES, Complexity.exponent(n, medians),
+				exponents[(int) (BENCH_RESAMPLES * 0.025)], exponents[(int) (BENCH_RESAMPLES * 0.975) - 1],
+				medians[sizes.length - 1] / 1e6, sizes[sizes.length - 1]);
+	}
+	
+	/**
+	 * Time one sort of a new list of the given elements (building the list isn't timed)
+	 * @param elements the elements to sort
+	 * @param c the Comparator to sort with, or null to use the natural order
+	 * @return the time the sort took in nanoseconds
+	 */
+	private static double timeSort(Integer[] elements, Comparator<Integer> c) {
+		IUListWithListIterator<Integer> list = newListWithElements(elements);
+		long startTime = System.nanoTime();
+		if (c == null) {
+			Sort.sort(list);
+		} else {
+			Sort.sort(list, c);
+		}
+		return System.nanoTime() - startTime;
+	}
+	
+	/**
+	 * @param values the values (left in sorted order)
+	 * @return the median of the values
+	 */
+	private static double median(double[] values) {
+		Arrays.sort(values);
+		int mid = values.length / 2;
+		return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2;
+	}
+	
 	/////////////
 	// Tests
 	/////////////
@@ -435,6 +678,226 @@ public class SortTester {
 		}
 	}
 		
+	/**
+	 * Sorts listToSort with BulkSort and compares the result to sortedList.
+	 * @param listToSort
+	 * @param sortedList
+	 * @return true if listToSort and sortedList are the same after sorting listToSort
+	 */
+	private static boolean testBulkSort(IUListWithListIterator<Integer> listToSort, IUListWithListIterator<Integer> sortedList) {
+		return testBulkSort(listToSort, sortedList, null);
+	}
+	
+	/**
+	 * Sorts listToSort with BulkSort and compares the result to sortedList.
+	 * @param listToSort
+	 * @param sortedList
+	 * @param c a Comparator to use in sorting (null for the natural order)
+	 * @return true if listToSort and sortedList are the same after sorting listToSort
+	 */
+	private static boolean testBulkSort(IUListWithListIterator<Integer> listToSort, IUListWithListIterator<Integer> sortedList, Comparator<Integer> c) {
+		try {
+			if (c == null) {
+				BulkSort.sort(listToSort);
+			} else {
+				BulkSort.sort(listToSort, c);
+			}
+			if (!equivalentLists(listToSort, sortedList)) {
+				printLists(listToSort, sortedList);
+				return false;
+			} else {
+				return true;
+			}
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+	
+	/**
+	 * Sorts n random integers with BulkSort by a Comparator that only looks at
+	 * their last digit, so lots of them compare equal, and checks that the
+	 * equal ones kept their order.
+	 * @param n the number of integers to sort
+	 * @return true if the list is in the same order as a stable sort of it
+	 */
+	private static boolean testBulkSortStable(int n) {
+		try {
+			Integer[] elements = new Integer[n];
+			Random rand = new Random(456);
+			for (int i = 0; i < n; i++) {
+				elements[i] = rand.nextInt(1000000);
+			}
+			Comparator<Integer> lastDigit = Comparator.comparingInt(i -> i % 10);
+			IUListWithListIterator<Integer> list = newListWithElements(elements);
+			BulkSort.sort(list, lastDigit);
+			
+			Arrays.sort(elements, lastDigit);	// stable too
+			return equivalentLists(list, newListWithElements(elements));
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+		
+	/**
+	 * Sorts listToSort with IntSort and compares the result to sortedList.
+	 * @param listToSort
+	 * @param sortedList
+	 * @param descending whether to sort into descending order
+	 * @return true if listToSort and sortedList are the same after sorting listToSort
+	 */
+	private static boolean testIntSort(IUListWithListIterator<Integer> listToSort, IUListWithListIterator<Integer> sortedList, boolean descending) {
+		try {
+			IntSort.sort(listToSort, descending);
+			if (!equivalentLists(listToSort, sortedList)) {
+				printLists(listToSort, sortedList);
+				return false;
+			} else {
+				return true;
+			}
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+	
+	/**
+	 * Sorts n random integers (negative ones included) with IntSort and
+	 * compares the result to sorting them with Comparable.
+	 * @param n the number of integers to sort
+	 * @param descending whether to sort into descending order
+	 * @return true if both sorts agree
+	 */
+	private static boolean testIntSortBig(int n, boolean descending) {
+		try {
+			Integer[] elements = new Integer[n];
+			Random rand = new Random(789);
+			for (int i = 0; i < n; i++) {
+				elements[i] = rand.nextInt();
+			}
+			IUListWithListIterator<Integer> list = newListWithElements(elements);
+			IntSort.sort(list, descending);
+			
+			Arrays.sort(elements, descending ? Comparator.reverseOrder() : Comparator.naturalOrder());
+			return equivalentLists(list, newListWithElements(elements));
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+		
+	/**
+	 * Sorts listToSort with AdaptiveSort and compares the result to sortedList.
+	 * @param listToSort
+	 * @param sortedList
+	 * @param c a Comparator to use in sorting (null for the natural order)
+	 * @return true if listToSort and sortedList are the same after sorting listToSort
+	 */
+	private static boolean testAdaptiveSort(IUListWithListIterator<Integer> listToSort, IUListWithListIterator<Integer> sortedList, Comparator<Integer> c) {
+		try {
+			if (c == null) {
+				AdaptiveSort.sort(listToSort);
+			} else {
+				AdaptiveSort.sort(listToSort, c);
+			}
+			if (!equivalentLists(listToSort, sortedList)) {
+				printLists(listToSort, sortedList);
+				return false;
+			} else {
+				return true;
+			}
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+	
+	/**
+	 * Sorts n integers of the given shape with AdaptiveSort by a Comparator 
+	 * that only looks at their high digits, so runs and ties both happen, 
+	 * and checks the result against a stable sort.
+	 * @param shape the shape of the input
+	 * @param n the number of integers to sort
+	 * @return true if the list is in the same order as a stable sort of it
+	 */
+	private static boolean testAdaptiveSortStable(Shape shape, int n) {
+		try {
+			Integer[] elements = shape.elements(n);
+			Comparator<Integer> coarse = Comparator.comparingInt(i -> i / 16);
+			IUListWithListIterator<Integer> list = newListWithElements(elements);
+			AdaptiveSort.sort(list, coarse);
+			
+			Arrays.sort(elements, coarse);	// stable too
+			return equivalentLists(list, newListWithElements(elements));
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		}
+	}
+		
+	/**
+	 * Sorts listToSort with a ParallelSort and compares the result to sortedList.
+	 * @param sorter the ParallelSort to sort with
+	 * @param listToSort
+	 * @param sortedList
+	 * @param c a Comparator to use in sorting (null for the natural order)
+	 * @return true if listToSort and sortedList are the same after sorting listToSort
+	 */
+	private static boolean testParallelSort(ParallelSort sorter, IUListWithListIterator<Integer> listToSort, IUListWithListIterator<Integer> sortedList, Comparator<Integer> c) {
+		try {
+			if (c == null) {
+				sorter.sort(listToSort);
+			} else {
+				sorter.sort(listToSort, c);
+			}
+			if (!equivalentLists(listToSort, sortedList)) {
+				printLists(listToSort, sortedList);
+				return false;
+			} else {
+				return true;
+			}
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		} finally {
+			sorter.close();
+		}
+	}
+	
+	/**
+	 * Sorts n random integers with a ParallelSort by a Comparator that only
+	 * looks at their last digit, so lots of them compare equal, and checks
+	 * that the equal ones kept their order.
+	 * @param sorter the ParallelSort to sort with
+	 * @param n the number of integers to sort
+	 * @return true if the list is in the same order as a stable sort of it
+	 */
+	private static boolean testParallelSortStable(ParallelSort sorter, int n) {
+		try {
+			Integer[] elements = Shape.RANDOM.elements(n);
+			Comparator<Integer> lastDigit = Comparator.comparingInt(i -> i % 10);
+			IUListWithListIterator<Integer> list = newListWithElements(elements);
+			sorter.sort(list, lastDigit);
+			
+			Arrays.sort(elements, lastDigit);	// stable too
+			return equivalentLists(list, newListWithElements(elements));
+		} catch (Exception e) {
+			System.out.println("***Unexpected exception***");
+			e.printStackTrace(System.out);
+			return false;
+		} finally {
+			sorter.close();
+		}
+	}
+		
 	///////////////////////////////////////////////////////
 	// XXX OTHER UTILITY METHODS THE TESTER NEEDS
 	///////////////////////////////////////////////////////
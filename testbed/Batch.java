@@ -0,0 +1,166 @@
+package testbed;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A task to invoke a method with a whole list of parameter tuples, back to
+ * back, on one worker thread. It's the same as an Executor per tuple, minus
+ * handing every single invocation to a worker and waiting for it, which is
+ * most of the cost of testing a cheap method over thousands of combinations.
+ *
+ * <p>
+ *
+ * Every invocation still gets its own timeout: the Batch keeps track of
+ * which tuple it's on and when it started it, and the thread waiting on the
+ * Batch (see Tester) gives up on it when the tuple it's on runs too long.
+ * That tuple gets an InfiniteLoopException, and the rest of the list goes
+ * to a new Batch on a fresh worker.
+ *
+ * @author michael
+ *
+ */
+class Batch implements WorkerPool.Job {
+
+	// the parameters of every invocation
+	private final Object[][] tuples;
+	// the index of the first tuple this Batch invokes
+	private final int from;
+	// the results of the invocations, by tuple (shared by every Batch of the list)
+	private final Result[] results;
+	// the invocation of each tuple from the first one on
+	private final Executor[] executors;
+
+	// the tuple being invoked, and when (in ns) its invocation started
+	private volatile int current;
+	private volatile long started;
+	// released when every tuple is done
+	private final CountDownLatch done = new CountDownLatch(1);
+	// the thread running this Batch (null until it starts)
+	private Thread runner;
+	// whether or not the waiting thread has given up on this Batch
+	private boolean cancelled;
+	// whether or not every tuple is done
+	private boolean finished;
+
+
+	/**
+	 * create a new Batch to invoke the given method with the given tuples,
+	 * from the given one on, on objects produced by the given Supplier
+	 *
+	 * @param obj      the Supplier of the objects to be tested
+	 * @param method   the (cataloged) method to invoke
+	 * @param tuples   the parameters of every invocation
+	 * @param from     the index of the first tuple to invoke
+	 * @param results  where to put the Result of each tuple
+	 * @param measureResources  whether or not to measure CPU time and allocations
+	 */
+	Batch(Supplier<?> obj, MethodCatalog.Entry method, Object[][] tuples, int from, Result[] results, boolean measureResources) {
+		this.tuples = tuples;
+		this.from = from;
+		this.results = results;
+		// made here, on the calling thread, so that loading Executor (the first
+		// time) isn't part of the first invocation's time on the worker
+		this.executors = new Executor[tuples.length - from];
+		for (int i = from; i < tuples.length; i++) {
+			executors[i - from] = new Executor(obj, method, tuples[i]);
+			executors[i - from].setMeasureResources(measureResources);
+		}
+		this.current = from;
+		this.started = System.nanoTime();
+	}
+
+
+	/**
+	 * invoke every tuple on the given worker thread, unless this Batch has
+	 * already been cancelled
+	 *
+	 * @param worker  the thread calling this method
+	 * @return        false if this Batch was cancelled while it ran
+	 *                (meaning the worker is about to be killed)
+	 */
+	@Override
+	public boolean runOn(Thread worker) {
+		synchronized (this) {
+			if (cancelled) {
+				return true;
+			}
+			runner = worker;
+		}
+
+		for (int i = from; i < tuples.length; i++) {
+			// (started first, so whoever sees the new tuple sees when it started)
+			started = System.nanoTime();
+			current = i;
+
+			Executor executor = executors[i - from];
+			executor.run();
+
+			synchronized (this) {
+				// (once cancelled, the tuple it was on has its InfiniteLoopException)
+				if (cancelled) {
+					return false;
+				}
+				results[i] = executor.result();
+			}
+		}
+
+		synchronized (this) {
+			finished = true;
+		}
+		done.countDown();
+		return true;
+	}
+
+	/**
+	 * give up on this Batch. It won't be started if it hasn't been already,
+	 * and it stops after the tuple it's on if it has.
+	 *
+	 * @return  the thread still running this Batch, or null if it never
+	 *          started or has already finished
+	 */
+	@Override
+	public synchronized Thread cancel() {
+		cancelled = true;
+		return finished ? null : runner;
+	}
+
+
+	/**
+	 * wait until every tuple is done or the tuple being invoked has run
+	 * for longer than the given time
+	 *
+	 * @param timeout  the time (in ns) each invocation gets
+	 * @return         -1 if every tuple is done, or else the index of the
+	 *                 tuple that ran too long
+	 * @throws InterruptedException  if the waiting thread is interrupted
+	 */
+	int await(long timeout) throws InterruptedException {
+		while (true) {
+			int i = current;
+			long wait = started + timeout - System.nanoTime();
+			if (done.await(Math.max(wait, 0), TimeUnit.NANOSECONDS)) {
+				return -1;
+			}
+			// it's only too long if it's still on the same tuple
+			if (current == i && wait <= 0) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * get the index of the first tuple without a Result, once this Batch
+	 * has been cancelled (or is finished)
+	 *
+	 * @return  the index, or the number of tuples if they all have Results
+	 */
+	synchronized int firstUnfinished() {
+		int i = from;
+		while (i < results.length && results[i] != null) {
+			i++;
+		}
+		return i;
+	}
+}
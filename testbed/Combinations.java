@@ -0,0 +1,126 @@
+package testbed;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * All combinations (the Cartesian product) of a set of domains, produced
+ * lazily one parameter tuple at a time.
+ *
+ * <p>
+ *
+ * Tuples come out like an odometer: the last domain changes fastest.
+ * For domains {1, 2} and {a, b} that's (1, a), (1, b), (2, a), (2, b).
+ *
+ * @author michael
+ *
+ */
+public class Combinations implements Iterable<Object[]> {
+
+	// the domains to combine
+	private final Object[][] domains;
+	// whether or not every tuple is written into the same array
+	private final boolean reuse;
+
+
+	/**
+	 * create the combinations of the given domains. Every tuple is a new array.
+	 *
+	 * @param domains  the domains to combine
+	 */
+	public Combinations(Object[]... domains) {
+		this(false, domains);
+	}
+
+	/**
+	 * create the combinations of the given domains
+	 *
+	 * @param reuse    whether or not every tuple should be written into the same
+	 *                 array (only safe if the caller is done with each tuple
+	 *                 before asking for the next)
+	 * @param domains  the domains to combine
+	 */
+	public Combinations(boolean reuse, Object[]... domains) {
+		if (domains == null) {
+			throw new IllegalArgumentException("domains can't be null");
+		}
+		this.domains = domains;
+		this.reuse = reuse;
+	}
+
+
+	/**
+	 * get the number of combinations of the domains
+	 *
+	 * @return  the number of combinations, or Long.MAX_VALUE if there are
+	 *          more than that
+	 */
+	public long count() {
+		long total = 1;
+		for (Object[] d : domains) {
+			if (d.length == 0) {
+				return 0;
+			}
+			if (total > Long.MAX_VALUE / d.length) {
+				return Long.MAX_VALUE;
+			}
+			total *= d.length;
+		}
+		return total;
+	}
+
+
+	/**
+	 * get an Iterator over the combinations of the domains
+	 */
+	@Override
+	public Iterator<Object[]> iterator() {
+		return new Odometer();
+	}
+
+
+	/**
+	 * Steps through the combinations by counting in a mixed radix
+	 * (one digit per domain)
+	 *
+	 * @author michael
+	 *
+	 */
+	private class Odometer implements Iterator<Object[]> {
+
+		// the index into each domain of the next tuple
+		private final int[] digits = new int[domains.length];
+		// the array tuples are written into if they are being reused
+		private final Object[] shared = reuse ? new Object[domains.length] : null;
+		// whether or not there is another tuple
+		private boolean more = count() > 0;
+
+
+		@Override
+		public boolean hasNext() {
+			return more;
+		}
+
+		@Override
+		public Object[] next() {
+			if (!more) {
+				throw new NoSuchElementException();
+			}
+
+			Object[] tuple = reuse ? shared : new Object[domains.length];
+			for (int i = 0; i < domains.length; i++) {
+				tuple[i] = domains[i][digits[i]];
+			}
+
+			// turn the odometer: roll over digits from the right until one doesn't
+			int i = domains.length - 1;
+			while (i >= 0 && ++digits[i] == domains[i].length) {
+				digits[i] = 0;
+				i--;
+			}
+			more = i >= 0;
+
+			return tuple;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package testbed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The usual orders of growth, and a way to tell which one a set of
+ * (size, time) measurements grows like.
+ *
+ * <p>
+ *
+ * A fit scales each order's function to the measurements by least squares
+ * (time = c * f(n)) and keeps the one that leaves the smallest error. The
+ * residuals are relative to the times, so a ladder of sizes that doubles
+ * counts the small sizes as much as the big ones. It's the same idea as
+ * the BigO reports of most benchmark harnesses: crude, but good enough to
+ * tell an n log n sort from a quadratic one if the sizes span a couple of
+ * orders of magnitude.
+ *
+ * @author michael
+ *
+ */
+public enum Complexity {
+
+	CONSTANT("1"),
+	LOGARITHMIC("logn"),
+	LINEAR("n"),
+	LINEARITHMIC("nlogn"),
+	QUADRATIC("n^2"),
+	CUBIC("n^3"),
+	EXPONENTIAL("2^n");
+
+	// how the order is written inside O( )
+	private final String notation;
+
+
+	private Complexity(String notation) {
+		this.notation = notation;
+	}
+
+
+	/**
+	 * evaluate this order's function at the given size
+	 *
+	 * @param n  the size
+	 * @return   the value of the function (only its growth matters)
+	 */
+	public double apply(double n) {
+		switch (this) {
+		case CONSTANT:
+			return 1;
+		case LOGARITHMIC:
+			return Math.log(Math.max(n, 2));
+		case LINEAR:
+			return n;
+		case LINEARITHMIC:
+			return n * Math.log(Math.max(n, 2));
+		case QUADRATIC:
+			return n * n;
+		case CUBIC:
+			return n * n * n;
+		default:
+			return Math.pow(2, n);
+		}
+	}
+
+
+	/**
+	 * get this order in big O notation, like O(nlogn)
+	 */
+	@Override
+	public String toString() {
+		return "O(" + notation + ")";
+	}
+
+	/**
+	 * get the order written the given way. Spaces, "*" and the parentheses
+	 * of "log(n)" are ignored, so "O(n log n)" and "n*log(n)" both work.
+	 *
+	 * @param s  the order, with or without the O( )
+	 * @return   the order
+	 * @throws IllegalArgumentException  if it isn't one of the orders
+	 */
+	public static Complexity parse(String s) {
+		String n = s.replaceAll("[\\s*]", "").replace("log(n)", "logn").toLowerCase();
+		if (n.startsWith("o(") && n.endsWith(")")) {
+			n = n.substring(2, n.length() - 1);
+		}
+		for (Complexity c : values()) {
+			if (c.notation.equals(n)) {
+				return c;
+			}
+		}
+		throw new IllegalArgumentException(s + " is not an order of growth (" + Arrays.toString(values()) + ")");
+	}
+
+
+	/**
+	 * fit this order to the given measurements
+	 *
+	 * @param sizes  the size of each measurement
+	 * @param times  the time of each measurement
+	 * @return       the fit
+	 */
+	public Fit fit(double[] sizes, double[] times) {
+		if (sizes.length != times.length || sizes.length == 0) {
+			throw new IllegalArgumentException("need the same (nonzero) number of sizes and times");
+		}
+
+		// least squares for 1 = c * f(n) / time (the relative residuals), 
+		// so c = sum(f / t) / sum((f / t)^2)
+		double ff = 0, f1 = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			double r = apply(sizes[i]) / Math.max(times[i], Double.MIN_NORMAL);
+			ff += r * r;
+			f1 += r;
+		}
+		double c = ff == 0 || Double.isInfinite(ff) ? 0 : f1 / ff;
+
+		double squares = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			double residual = 1 - c * apply(sizes[i]) / Math.max(times[i], Double.MIN_NORMAL);
+			squares += residual * residual;
+		}
+		double error = Math.sqrt(squares / sizes.length);
+		return new Fit(this, c, Double.isNaN(error) ? Double.POSITIVE_INFINITY : error);
+	}
+
+	/**
+	 * find the order that fits the given measurements best
+	 *
+	 * @param sizes  the size of each measurement
+	 * @param times  the time of each measurement
+	 * @return       the best fit (the slower growing one, if it's a tie)
+	 */
+	public static Fit bestFit(double[] sizes, double[] times) {
+		Fit best = null;
+		for (Complexity c : values()) {
+			Fit f = c.fit(sizes, times);
+			if (best == null || f.getError() < best.getError()) {
+				best = f;
+			}
+		}
+		return best;
+	}
+
+
+	/**
+	 * get the empirical exponent of the measurements: the slope of log(time)
+	 * against log(size), so time grows like size to that power (about 1 for
+	 * linear, a little more for n log n, 2 for quadratic)
+	 *
+	 * @param sizes  the size of each measurement (all positive)
+	 * @param times  the time of each measurement (all positive)
+	 * @return       the exponent
+	 */
+	public static double exponent(double[] sizes, double[] times) {
+		int k = sizes.length;
+		double mx = 0, my = 0;
+		for (int i = 0; i < k; i++) {
+			mx += Math.log(sizes[i]);
+			my += Math.log(times[i]);
+		}
+		mx /= k;
+		my /= k;
+
+		double xy = 0, xx = 0;
+		for (int i = 0; i < k; i++) {
+			double dx = Math.log(sizes[i]) - mx;
+			xy += dx * (Math.log(times[i]) - my);
+			xx += dx * dx;
+		}
+		return xx == 0 ? 0 : xy / xx;
+	}
+
+
+	/**
+	 * reduce repeated measurements to the median time at each size, which
+	 * keeps a few slow outliers (a GC, a JIT compile) from skewing a fit
+	 *
+	 * @param sizes  the size of each measurement
+	 * @param times  the time of each measurement
+	 * @return       the distinct sizes in increasing order ([0]) and the
+	 *               median time at each ([1])
+	 */
+	public static double[][] medians(double[] sizes, double[] times) {
+		TreeMap<Double, List<Double>> bySize = new TreeMap<Double, List<Double>>();
+		for (int i = 0; i < sizes.length; i++) {
+			bySize.computeIfAbsent(sizes[i], k -> new ArrayList<Double>()).add(times[i]);
+		}
+
+		double[][] ret = new double[2][bySize.size()];
+		int i = 0;
+		for (Map.Entry<Double, List<Double>> e : bySize.entrySet()) {
+			List<Double> t = e.getValue();
+			t.sort(null);
+			int mid = t.size() / 2;
+			ret[0][i] = e.getKey();
+			ret[1][i] = t.size() % 2 == 1 ? t.get(mid) : (t.get(mid - 1) + t.get(mid)) / 2;
+			i++;
+		}
+		return ret;
+	}
+
+
+	/**
+	 * How well an order of growth matches some measurements
+	 *
+	 * @author michael
+	 *
+	 */
+	public static class Fit {
+
+		// the order fitted
+		private final Complexity complexity;
+		// the c in time = c * f(n)
+		private final double coefficient;
+		// the root mean square of the residuals, relative to the times
+		private final double error;
+
+
+		Fit(Complexity complexity, double coefficient, double error) {
+			this.complexity = complexity;
+			this.coefficient = coefficient;
+			this.error = error;
+		}
+
+
+		/**
+		 * get the order fitted
+		 *
+		 * @return  the order
+		 */
+		public Complexity getComplexity() {
+			return complexity;
+		}
+
+		/**
+		 * get the coefficient of the fit (the c in time = c * f(n))
+		 *
+		 * @return  the coefficient
+		 */
+		public double getCoefficient() {
+			return coefficient;
+		}
+
+		/**
+		 * get the error of the fit: the root mean square of the residuals,
+		 * each relative to its time (0 is a perfect fit)
+		 *
+		 * @return  the error
+		 */
+		public double getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return complexity + String.format(" (error %.1f%%)", error * 100);
+		}
+	}
+}
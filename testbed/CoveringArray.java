@@ -0,0 +1,322 @@
+package testbed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A covering array of a set of domains: a (usually much) smaller set of
+ * parameter tuples than all combinations, in which every combination of
+ * values of any t parameters still shows up at least once.
+ *
+ * <p>
+ *
+ * With strength 2 (pairwise) every pair of values of every two parameters
+ * is tested. Most bugs that depend on the parameters at all depend on just
+ * one or two of them, and the number of tuples grows with the log of the
+ * number of parameters instead of with their product.
+ *
+ * <p>
+ *
+ * The array is built with IPOG (in-parameter-order) and no randomness, so
+ * the same domains and strength always give the same tuples in the same
+ * order. That's what lets expected Results be listed for them in a ResultSet.
+ *
+ * @author michael
+ *
+ */
+public class CoveringArray implements Iterable<Object[]> {
+
+	// marks a value in a row that hasn't been chosen yet
+	private static final int ANY = -1;
+
+	// the domains the tuples are drawn from
+	private final Object[][] domains;
+	// each tuple, as an index into each domain
+	private final int[][] rows;
+
+
+	/**
+	 * build a covering array of the given strength over the given domains
+	 *
+	 * @param strength  the number of parameters whose every combination
+	 *                  of values must be covered (2 for pairwise)
+	 * @param domains   the domains of the parameters
+	 */
+	public CoveringArray(int strength, Object[]... domains) {
+		if (strength < 1) {
+			throw new IllegalArgumentException("strength must be at least 1");
+		}
+		if (domains == null) {
+			throw new IllegalArgumentException("domains can't be null");
+		}
+		this.domains = domains;
+
+		int[] sizes = new int[domains.length];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = domains[i].length;
+		}
+		this.rows = build(sizes, strength);
+	}
+
+
+	/**
+	 * get the number of tuples in this covering array
+	 *
+	 * @return  the number of tuples
+	 */
+	public long count() {
+		return rows.length;
+	}
+
+
+	/**
+	 * get an Iterator over the tuples of this covering array. Every tuple is a new array.
+	 */
+	@Override
+	public Iterator<Object[]> iterator() {
+		return new Iterator<Object[]>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < rows.length;
+			}
+
+			@Override
+			public Object[] next() {
+				if (next >= rows.length) {
+					throw new NoSuchElementException();
+				}
+				int[] row = rows[next++];
+				Object[] tuple = new Object[row.length];
+				for (int i = 0; i < row.length; i++) {
+					tuple[i] = domains[i][row[i]];
+				}
+				return tuple;
+			}
+		};
+	}
+
+
+	/**
+	 * build the rows of a covering array with IPOG
+	 *
+	 * @param sizes     the size of each domain
+	 * @param strength  the strength of the covering array
+	 * @return          the rows, as indices into each domain
+	 */
+	private static int[][] build(int[] sizes, int strength) {
+		for (int s : sizes) {
+			if (s == 0) {
+				return new int[0][];
+			}
+		}
+
+		int n = sizes.length;
+		int t = Math.min(strength, n);
+
+		// start with every combination of the first t parameters
+		List<int[]> rows = new ArrayList<int[]>();
+		for (Object[] combo : new Combinations(indices(sizes, t))) {
+			int[] row = new int[n];
+			for (int i = 0; i < n; i++) {
+				row[i] = i < t ? (Integer) combo[i] : ANY;
+			}
+			rows.add(row);
+		}
+
+		// then add the rest of the parameters one at a time
+		for (int p = t; p < n; p++) {
+			extend(rows, sizes, p, t);
+		}
+
+		// whatever is still unchosen doesn't matter, so use the first value
+		int[][] ret = rows.toArray(new int[rows.size()][]);
+		for (int[] row : ret) {
+			for (int i = 0; i < n; i++) {
+				if (row[i] == ANY) {
+					row[i] = 0;
+				}
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * add parameter p to the rows so that every t-way combination involving
+	 * p and t - 1 of the parameters before it is covered
+	 *
+	 * @param rows   the rows so far (may grow)
+	 * @param sizes  the size of each domain
+	 * @param p      the parameter being added
+	 * @param t      the strength of the covering array
+	 */
+	private static void extend(List<int[]> rows, int[] sizes, int p, int t) {
+		// every choice of t - 1 earlier parameters, each with a table of
+		// which combinations of their values and p's are still uncovered
+		List<int[]> subsets = subsets(p, t - 1);
+		boolean[][] uncovered = new boolean[subsets.size()][];
+		for (int s = 0; s < subsets.size(); s++) {
+			int combos = sizes[p];
+			for (int q : subsets.get(s)) {
+				combos *= sizes[q];
+			}
+			uncovered[s] = new boolean[combos];
+			Arrays.fill(uncovered[s], true);
+		}
+
+		// horizontal growth: give every existing row the value of p that covers the most
+		for (int[] row : rows) {
+			int best = ANY;
+			int bestGain = 0;
+			for (int v = 0; v < sizes[p]; v++) {
+				int gain = 0;
+				for (int s = 0; s < subsets.size(); s++) {
+					int idx = index(row, subsets.get(s), sizes, p, v);
+					if (idx >= 0 && uncovered[s][idx]) {
+						gain++;
+					}
+				}
+				if (gain > bestGain) {
+					best = v;
+					bestGain = gain;
+				}
+			}
+			row[p] = best;
+			cover(row, subsets, uncovered, sizes, p);
+		}
+
+		// vertical growth: fit every combination still uncovered into a row
+		// with room for it, or add a new row
+		for (int s = 0; s < subsets.size(); s++) {
+			int[] subset = subsets.get(s);
+			for (int idx = 0; idx < uncovered[s].length; idx++) {
+				if (!uncovered[s][idx]) {
+					continue;
+				}
+
+				// decode the values of the combination (p's is the lowest digit)
+				int[] values = new int[subset.length + 1];
+				int rest = idx;
+				values[subset.length] = rest % sizes[p];
+				rest /= sizes[p];
+				for (int j = subset.length - 1; j >= 0; j--) {
+					values[j] = rest % sizes[subset[j]];
+					rest /= sizes[subset[j]];
+				}
+
+				int[] target = null;
+				for (int[] row : rows) {
+					if (fits(row, subset, p, values)) {
+						target = row;
+						break;
+					}
+				}
+				if (target == null) {
+					target = new int[sizes.length];
+					Arrays.fill(target, ANY);
+					rows.add(target);
+				}
+				for (int j = 0; j < subset.length; j++) {
+					target[subset[j]] = values[j];
+				}
+				target[p] = values[subset.length];
+				cover(target, subsets, uncovered, sizes, p);
+			}
+		}
+	}
+
+
+	/**
+	 * mark every combination the given row covers as covered
+	 */
+	private static void cover(int[] row, List<int[]> subsets, boolean[][] uncovered, int[] sizes, int p) {
+		if (row[p] == ANY) {
+			return;
+		}
+		for (int s = 0; s < subsets.size(); s++) {
+			int idx = index(row, subsets.get(s), sizes, p, row[p]);
+			if (idx >= 0) {
+				uncovered[s][idx] = false;
+			}
+		}
+	}
+
+
+	/**
+	 * determine whether the given combination can be put into the given row
+	 * without changing any value already chosen
+	 */
+	private static boolean fits(int[] row, int[] subset, int p, int[] values) {
+		for (int j = 0; j < subset.length; j++) {
+			if (row[subset[j]] != ANY && row[subset[j]] != values[j]) {
+				return false;
+			}
+		}
+		return row[p] == ANY || row[p] == values[subset.length];
+	}
+
+
+	/**
+	 * get the index into a subset's table of the combination of the row's
+	 * values for the subset and the value v for p
+	 *
+	 * @return  the index, or -1 if the row hasn't chosen a value for one
+	 *          of the subset's parameters
+	 */
+	private static int index(int[] row, int[] subset, int[] sizes, int p, int v) {
+		int idx = 0;
+		for (int q : subset) {
+			if (row[q] == ANY) {
+				return -1;
+			}
+			idx = idx * sizes[q] + row[q];
+		}
+		return idx * sizes[p] + v;
+	}
+
+
+	/**
+	 * get every k-element subset of 0 .. n - 1, in lexicographic order
+	 */
+	private static List<int[]> subsets(int n, int k) {
+		List<int[]> ret = new ArrayList<int[]>();
+		int[] cur = new int[k];
+		for (int i = 0; i < k; i++) {
+			cur[i] = i;
+		}
+		while (true) {
+			ret.add(cur.clone());
+			int i = k - 1;
+			while (i >= 0 && cur[i] == n - k + i) {
+				i--;
+			}
+			if (i < 0) {
+				return ret;
+			}
+			cur[i]++;
+			for (int j = i + 1; j < k; j++) {
+				cur[j] = cur[j - 1] + 1;
+			}
+		}
+	}
+
+
+	/**
+	 * get domains of indices (0 .. size - 1) for the first count sizes
+	 */
+	private static Object[][] indices(int[] sizes, int count) {
+		Object[][] ret = new Object[count][];
+		for (int i = 0; i < count; i++) {
+			ret[i] = new Object[sizes[i]];
+			for (int j = 0; j < sizes[i]; j++) {
+				ret[i][j] = j;
+			}
+		}
+		return ret;
+	}
+}
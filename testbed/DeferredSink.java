@@ -0,0 +1,68 @@
+package testbed;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A ResultSink that holds on to everything it's told until it's replayed
+ * into another sink. Lets TestCases run in parallel while their reports
+ * still come out in order.
+ * 
+ * <p>
+ * 
+ * Everything held keeps its Results (and the objects they were invoked on)
+ * alive until the replay, which is why Tester only lets a few TestCases run
+ * ahead of the oldest one it hasn't replayed.
+ * 
+ * @author michael
+ *
+ */
+class DeferredSink implements ResultSink {
+	
+	// everything this sink has been told, in order
+	private final ArrayList<Consumer<ResultSink>> events = new ArrayList<Consumer<ResultSink>>();
+	
+	
+	@Override
+	public void pass(String description, Result achieved) {
+		events.add(s -> s.pass(description, achieved));
+	}
+	
+	@Override
+	public void fail(String description, Result achieved, Result expected) {
+		events.add(s -> s.fail(description, achieved, expected));
+	}
+	
+	@Override
+	public void budgetPass(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		events.add(s -> s.budgetPass(description, methodName, budget, outcome));
+	}
+	
+	@Override
+	public void budgetFail(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		events.add(s -> s.budgetFail(description, methodName, budget, outcome));
+	}
+	
+	@Override
+	public void caseDone(String description) {
+		events.add(s -> s.caseDone(description));
+	}
+	
+	@Override
+	public void summary(int total, int passes, int failures) {
+		events.add(s -> s.summary(total, passes, failures));
+	}
+	
+	
+	/**
+	 * tell the given sink everything this sink has been told
+	 * 
+	 * @param sink  the sink to replay into
+	 */
+	void replay(ResultSink sink) {
+		for (Consumer<ResultSink> e : events) {
+			e.accept(sink);
+		}
+		events.clear();
+	}
+}
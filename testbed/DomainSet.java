@@ -2,6 +2,7 @@ package testbed;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Set;
 
 /**
  * represents a set of domains for testing
@@ -13,6 +14,8 @@ public class DomainSet {
 
 	// the set of domains
 	private HashMap<String, Object[][]> domains;
+	// the covering array strength of each method that isn't tested exhaustively
+	private HashMap<String, Integer> strengths;
 	
 	
 	/**
@@ -28,11 +31,22 @@ public class DomainSet {
 	@SafeVarargs
 	public DomainSet(Tuple<String, Object[][]>... doms) {
 		this.domains = new HashMap<String, Object[][]>();
+		this.strengths = new HashMap<String, Integer>();
 		for (Tuple<String, Object[][]> d : doms) {
 			this.domains.put(d.x, d.y);
 		}
 	}
 	
+	/**
+	 * add the given method name/domain pair to this DomainSet
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @param domain      the domains of each of the method's parameters
+	 */
+	public void addDomain(String methodName, Object[]... domain) {
+		domains.put(methodName, domain);
+	}
+	
 	/**
 	 * Get the domain associated with the given method name
 	 * 
@@ -44,6 +58,52 @@ public class DomainSet {
 	}
 	
 	
+	/**
+	 * get the keyset (list of all method names) of this DomainSet
+	 * 
+	 * @return  the names of the methods with domains
+	 */
+	public Set<String> getKeySet() {
+		return domains.keySet();
+	}
+	
+	
+	/**
+	 * Test the given method with a covering array of the given strength instead
+	 * of every combination of its domains (2 for pairwise, 3 for 3-wise, ...)
+	 * 
+	 * <p>
+	 * 
+	 * Expected Results are listed in the order of the covering array's tuples.
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @param strength    the strength of the covering array, or 0 to go back to
+	 *                    testing every combination
+	 */
+	public void setStrength(String methodName, int strength) {
+		if (strength < 0) {
+			throw new IllegalArgumentException("strength can't be negative");
+		}
+		if (strength == 0) {
+			strengths.remove(methodName);
+		}
+		else {
+			strengths.put(methodName, strength);
+		}
+	}
+	
+	/**
+	 * Get the covering array strength used to test the given method
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @return            the strength, or 0 if every combination is tested
+	 */
+	public int getStrength(String methodName) {
+		Integer s = strengths.get(methodName);
+		return s != null ? s : 0;
+	}
+	
+	
 	/**
 	 * returns a string representation of this DomainSet
 	 * 
@@ -0,0 +1,56 @@
+package testbed;
+
+/**
+ * The ways a Tester can run the methods it invokes
+ * 
+ * @author michael
+ *
+ */
+public enum ExecutionMode {
+	
+	/**
+	 * run each invocation on a pooled platform thread. Runaway invocations
+	 * are killed and their worker replaced.
+	 */
+	POOLED,
+	
+	/**
+	 * run all of a method's invocations back to back on one pooled platform
+	 * thread (see Batch). Each invocation still has its own timeout; a runaway
+	 * one is killed with its worker and the rest go to a fresh worker. Much
+	 * faster than POOLED for methods tested over lots of cheap combinations.
+	 */
+	BATCHED,
+	
+	/**
+	 * run each invocation on its own virtual thread. These are nearly free
+	 * to start, but can't be killed; the first runaway invocation makes the
+	 * Tester fall back to POOLED for the rest of its run.
+	 * 
+	 * <p>
+	 * 
+	 * Needs a JDK with virtual threads (21+).
+	 */
+	VIRTUAL,
+	
+	/**
+	 * run each method's invocations in a child JVM (see ForkedExecutor). 
+	 * Runaway invocations kill only their child, which is replaced, so 
+	 * nothing they leave behind can break later cases. 
+	 * 
+	 * <p>
+	 * 
+	 * Needs the TestSuite the TestCases come from (see Tester.setSuite).
+	 */
+	FORKED;
+	
+	
+	/**
+	 * determine whether this mode can be used on the running JVM
+	 * 
+	 * @return  whether or not this mode is supported
+	 */
+	public boolean isSupported() {
+		return this != VIRTUAL || VirtualThreads.isSupported();
+	}
+}
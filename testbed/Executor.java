@@ -1,36 +1,51 @@
 package testbed;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 /**
- * A worker thread to invoke a method and make its result
+ * A task to invoke a method on a worker thread and make its result
  * available to the main thread. A black box to execute functions
  * without fear of infinite loops.
  * 
  * <p>
  * 
- * The main thread can poll this thread for completion and, after
+ * The main thread can wait on this task for completion and, after
  * a reasonable amount of time, determine if it has gone into an
  * infinite loop and use an InfiniteLoopException as a result.
  * 
  * @author michael
  *
  */
-public class Executor extends Thread {
+public class Executor implements Runnable, WorkerPool.Job {
 	
 	// boolean representing whether or not 
 	// this Executor is done executing the method
 	private volatile boolean finished;
 	// the result achieved by the method
 	private volatile Result result;
+	// released as soon as the result is published
+	private final CountDownLatch done = new CountDownLatch(1);
+	// the thread running this Executor (null until it starts)
+	private Thread runner;
+	// whether or not the main thread has given up on this Executor
+	private boolean cancelled;
 	
 	// the Supplier supplying the object to be tested
 	private Supplier<?> obj;
 	// the method to be invoked
 	private Method method;
+	// the catalog entry of the method, if it came from one
+	private MethodCatalog.Entry entry;
 	// the parameters with which to call the method
 	private Object[] params;
+	// whether or not to measure the CPU time and allocations of the call
+	// (the wall clock time is always measured)
+	private boolean measureResources;
 	
 	
 	/**
@@ -47,6 +62,20 @@ public class Executor extends Thread {
 		this.params = params;
 	}
 	
+	/**
+	 * create a new Executor to invoke the given cataloged method with the 
+	 * given params on the object produced by the given Supplier. The method
+	 * is called through its Invoker when the params allow it.
+	 * 
+	 * @param obj
+	 * @param entry
+	 * @param params
+	 */
+	public Executor(Supplier<?> obj, MethodCatalog.Entry entry, Object... params) {
+		this(obj, entry.getMethod(), params);
+		this.entry = entry;
+	}
+	
 	
 	/**
 	 * begin executing the method
@@ -55,41 +84,142 @@ public class Executor extends Thread {
 	public void run() {
 		Object result = null;		
 		Object object = null;
+		// when the call started, and the CPU time and allocations up to then
+		long start = -1, cpuTime = -1, allocated = -1;
 		
-		if (params != null && params.length != 0) {
-			try {
-				object = obj.get();
-				result = method.invoke(object, params);
-			} catch (Exception e) {
-				// check for Exception chaining
-				if (e.getCause() == null && object == null) {
-					result = e;
-				}
-				else {
-					result = e.getCause();
+		try {
+			object = obj.get();
+			if (measureResources) {
+				cpuTime = cpuTime();
+				allocated = allocatedBytes();
+			}
+			start = System.nanoTime();
+			if (entry != null && entry.canInvokeDirectly(object, params)) {
+				try {
+					result = entry.invoke(object, params);
+				} catch (Throwable t) {
+					// nothing to unwrap, the handle throws what the method threw
+					result = t;
 				}
 			}
-		} else {
-		    try {
-				object = obj.get();
+			else if (params != null && params.length != 0) {
+				result = method.invoke(object, params);
+			}
+			else {
 				result = method.invoke(object, (Object[]) null);
-			} catch (Exception e) {
-				// check for Exception chaining
-				if (e.getCause() == null && object == null) {
-					result = e;
-				}
-				else {
-					result = e.getCause();
-				}
+			}
+		} catch (Exception e) {
+			// check for Exception chaining
+			if (e.getCause() == null && object == null) {
+				result = e;
+			}
+			else {
+				result = e.getCause();
 			}
 		}
 		
+		long end = System.nanoTime();
+		
 		Result resToRet = new Result(method, object, params, result);
+		// (the Supplier's time isn't the method's)
+		if (start >= 0) {
+			resToRet.setCost(end - start, 
+					cpuTime < 0 ? -1 : cpuTime() - cpuTime, 
+					allocated < 0 ? -1 : allocatedBytes() - allocated);
+		}
 		this.result = resToRet;
 		finished = true;
+		done.countDown();
+	}
+	
+	
+	/**
+	 * set whether or not to measure the CPU time and allocations of the call
+	 * (if the JVM can)
+	 * 
+	 * @param measureResources  whether or not to measure them
+	 */
+	void setMeasureResources(boolean measureResources) {
+		this.measureResources = measureResources;
+		if (measureResources) {
+			// (looked up here, on the calling thread, rather than in the middle 
+			// of a timed invocation on a worker that may be killed for it)
+			Resources.THREADS.getClass();
+		}
 	}
 	
 	
+	/**
+	 * get the CPU time used by the current thread so far
+	 * 
+	 * @return  the CPU time in nanoseconds, or -1 if the JVM can't tell
+	 */
+	private static long cpuTime() {
+		ThreadMXBean threads = Resources.THREADS;
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+	}
+	
+	/**
+	 * get the number of bytes allocated by the current thread so far
+	 * 
+	 * @return  the bytes allocated, or -1 if the JVM can't tell
+	 */
+	private static long allocatedBytes() {
+		if (Resources.THREADS instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) Resources.THREADS;
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * run this Executor on the given worker thread, unless it has
+	 * already been cancelled
+	 * 
+	 * @param worker  the thread calling this method
+	 * @return        false if this Executor was cancelled while it ran
+	 *                (meaning the worker is about to be killed)
+	 */
+	public boolean runOn(Thread worker) {
+		synchronized (this) {
+			if (cancelled) {
+				return true;
+			}
+			runner = worker;
+		}
+		run();
+		synchronized (this) {
+			return !cancelled;
+		}
+	}
+	
+	/**
+	 * give up on this Executor. It won't be started if it hasn't been
+	 * already.
+	 * 
+	 * @return  the thread still running this Executor, or null if it
+	 *          never started or has already finished
+	 */
+	public synchronized Thread cancel() {
+		cancelled = true;
+		return finished ? null : runner;
+	}
+	
+	
+	/**
+	 * wait until this Executor has finished or the given time has passed
+	 * 
+	 * @param timeout  the longest time to wait, in nanoseconds
+	 * @return         whether or not this Executor finished in time
+	 * @throws InterruptedException  if the waiting thread is interrupted
+	 */
+	public boolean await(long timeout) throws InterruptedException {
+		return done.await(timeout, TimeUnit.NANOSECONDS);
+	}
+	
 	/**
 	 * determines whether this Executor is finished executing
 	 * 
@@ -109,6 +239,18 @@ public class Executor extends Thread {
 	}
 	
 	
+	/**
+	 * Holds the MXBean for measuring CPU time and allocations, so it's only 
+	 * looked up once something measures them
+	 * 
+	 * @author michael
+	 *
+	 */
+	private static class Resources {
+		static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	}
+	
+	
 	
 	// I like this thing
 }
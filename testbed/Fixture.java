@@ -0,0 +1,140 @@
+package testbed;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A Supplier for a TestCase whose object is expensive to make (a list
+ * filled with 100000 elements, say). The object is made once, the first
+ * time it's needed, and kept as a prototype; every invocation gets a copy
+ * of it instead of a new one, so the cost of making it doesn't grow with
+ * the number of combinations being tested.
+ *
+ * <pre>
+ *     new TestCase("big list", Fixture.of(() -&gt; bigList(), list -&gt; list.copy()), domains, expected)
+ *     new TestCase("big list", Fixture.cloning(() -&gt; bigList()), domains, expected)
+ * </pre>
+ *
+ * <p>
+ *
+ * Invocations may change their copies however they like, so a copy has to
+ * share nothing with the prototype that a method being tested could change
+ * (Object.clone is shallow unless a class says otherwise, so only use
+ * cloning for classes whose clone makes an independent copy). Copies can
+ * be made on several threads at once, so making one mustn't change the
+ * prototype either.
+ *
+ * @author michael
+ *
+ */
+public class Fixture<T> implements Supplier<T> {
+
+	// makes the prototype
+	private final Supplier<? extends T> factory;
+	// makes a copy of the prototype
+	private final UnaryOperator<T> copier;
+	// the prototype (null until it's first needed)
+	private volatile T prototype;
+
+
+	private Fixture(Supplier<? extends T> factory, UnaryOperator<T> copier) {
+		this.factory = factory;
+		this.copier = copier;
+	}
+
+
+	/**
+	 * create a Fixture that copies its prototype with the given function
+	 *
+	 * @param factory  makes the prototype
+	 * @param copier   makes an independent copy of the prototype
+	 * @return         the Fixture
+	 */
+	public static <T> Fixture<T> of(Supplier<? extends T> factory, UnaryOperator<T> copier) {
+		if (factory == null || copier == null) {
+			throw new IllegalArgumentException("a Fixture needs a factory and a copier");
+		}
+		return new Fixture<T>(factory, copier);
+	}
+
+	/**
+	 * create a Fixture that copies its prototype by calling its (public) clone method
+	 *
+	 * @param factory  makes the prototype
+	 * @return         the Fixture
+	 */
+	public static <T extends Cloneable> Fixture<T> cloning(Supplier<? extends T> factory) {
+		if (factory == null) {
+			throw new IllegalArgumentException("a Fixture needs a factory");
+		}
+		// (the clone method is looked up once, on the prototype's class; a race
+		// just looks it up twice)
+		Method[] clone = new Method[1];
+		return new Fixture<T>(factory, p -> {
+			if (clone[0] == null) {
+				clone[0] = cloneMethod(p.getClass());
+			}
+			return copy(clone[0], p);
+		});
+	}
+
+
+	/**
+	 * get a copy of the prototype, making the prototype first if need be
+	 *
+	 * @return  a copy of the prototype
+	 */
+	@Override
+	public T get() {
+		T p = prototype;
+		if (p == null) {
+			synchronized (this) {
+				p = prototype;
+				if (p == null) {
+					p = factory.get();
+					if (p == null) {
+						throw new IllegalStateException("a Fixture's factory made null");
+					}
+					prototype = p;
+				}
+			}
+		}
+		return copier.apply(p);
+	}
+
+
+	/**
+	 * get the public clone method of a class
+	 */
+	private static Method cloneMethod(Class<?> c) {
+		try {
+			Method m = c.getMethod("clone");
+			if (!Modifier.isPublic(m.getDeclaringClass().getModifiers())) {
+				// (a public override in a class that isn't public can still be called)
+				m.setAccessible(true);
+			}
+			return m;
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(c.getName() + " doesn't have a public clone method");
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException(c.getName() + "'s clone method can't be called: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * call the clone method of the prototype
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T copy(Method clone, T prototype) {
+		try {
+			return (T) clone.invoke(prototype);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("cloning a Fixture failed", e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("cloning a Fixture failed", e);
+		}
+	}
+}
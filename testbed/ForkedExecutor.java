@@ -0,0 +1,523 @@
+package testbed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Runs the methods being tested in a pool of child JVMs instead of on
+ * threads of this one.
+ *
+ * <p>
+ *
+ * A runaway invocation on a thread can only be stopped with Thread.stop,
+ * which newer JDKs refuse to do and older ones do by throwing wherever the
+ * thread happens to be, leaving locks released halfway through and shared
+ * state broken for every case after it. A runaway child JVM is just killed;
+ * nothing it touched survives it.
+ *
+ * <p>
+ *
+ * Each child makes the TestCases of a TestSuite for itself and then waits
+ * on a pipe for batches: a case description and a method name. It invokes
+ * the method with every combination of the case's domains in turn and
+ * writes each Result back as soon as it has it. If a Result doesn't come
+ * back in time, the child is killed and the rest of the batch goes to a
+ * fresh one (the invocation that hung gets an InfiniteLoopException).
+ * Children are started ahead of time and reused from batch to batch, so
+ * they stay warmed up and JVM startup is only paid when one is killed.
+ *
+ * <p>
+ *
+ * Anything the tested code prints goes to the child's stderr (which is
+ * this JVM's), since the child's stdout is the pipe.
+ *
+ * @author michael
+ *
+ */
+class ForkedExecutor {
+
+	// what the messages from a child start with
+	private static final byte READY = 0, COUNT = 1, ITEM = 2, END = 3, ERROR = 4;
+	// how a value is sent: encoded by the ResultCodec, or as a description
+	// of something that can't be
+	private static final byte ENCODED = 0, OPAQUE = 1;
+	// the longest a child gets to start up and make its TestCases, in ns
+	private static final long STARTUP_TIMEOUT = 60000000000L;
+	// how much longer than the timeout to wait for a Result, in ns, for the
+	// pipe and for pauses (GC, JIT) in a child that's still warming up
+	private static final long GRACE = 100000000L;
+
+	// the suite the children make their TestCases from
+	private final Class<? extends TestSuite> suite;
+	// the class being tested
+	private final Class<?> clazz;
+	// the children ready for a batch
+	private final BlockingQueue<Child> idle = new LinkedBlockingQueue<Child>();
+	// whether or not close has been called (children are killed, not kept, from then on)
+	private volatile boolean closed;
+
+
+	/**
+	 * create a ForkedExecutor, starting the given number of children
+	 *
+	 * @param suite  the suite the children make their TestCases from
+	 * @param clazz  the class being tested
+	 * @param size   the number of children to keep ready
+	 */
+	ForkedExecutor(Class<? extends TestSuite> suite, Class<?> clazz, int size) {
+		this.suite = suite;
+		this.clazz = clazz;
+		ensureChildren(size);
+	}
+
+
+	/**
+	 * start more children, if needed, so at least the given number are ready
+	 *
+	 * @param size  the number of children needed
+	 */
+	synchronized void ensureChildren(int size) {
+		while (!closed && idle.size() < size) {
+			idle.add(new Child());
+		}
+	}
+
+
+	/**
+	 * invoke a method with every combination of the given case's domains,
+	 * in a child JVM, handing each Result on as soon as it comes back
+	 *
+	 * @param tested    the TestCase (which the children know by its description)
+	 * @param method    the method to invoke
+	 * @param timeout   the time (in ns) each invocation gets before it is
+	 *                  considered an infinite loop
+	 * @param tuples    the parameters of each invocation, made here the same
+	 *                  way the children make them
+	 * @param measureResources  whether or not to measure CPU time and allocations
+	 * @param out       takes each Result, in the order of the tuples, and
+	 *                  returns false to stop
+	 * @return          whether or not every tuple was invoked
+	 */
+	boolean getResults(TestCase tested, MethodCatalog.Entry method, long timeout, Tuples tuples, boolean measureResources,
+			Predicate<Result> out) {
+		// the index of the next Result (Child.run moves it along)
+		long[] next = new long[1];
+
+		while (next[0] < tuples.count()) {
+			Child child = take();
+			Iterator<Object[]> it = tuples.iterator(next[0]);
+			try {
+				if (child.run(tested.getDescription(), method, next, timeout, tuples.count(), it, measureResources, out)) {
+					release(child);
+					return true;
+				}
+				// told to stop partway through, so the child is still busy with the batch
+				child.kill();
+				replace();
+				return false;
+			} catch (IOException e) {
+				// the child died or hung on the first invocation it didn't finish;
+				// it's replaced and the batch goes on from the one after
+				child.kill();
+				replace();
+				// (it may have died after its last Result, before saying it was done)
+				if (next[0] == tuples.count()) {
+					break;
+				}
+				Object why = e instanceof Timeout ? new InfiniteLoopException() : new Opaque("the forked JVM died (" + e.getMessage() + ")");
+				next[0]++;
+				if (!out.test(new Result(method.getMethod(), null, it.next(), why))) {
+					return false;
+				}
+			} catch (IllegalStateException e) {
+				// the child didn't know the case or method (or has a different idea
+				// of it), so something's wrong with the suite; the child may be in
+				// the middle of a batch, so it's replaced too
+				child.kill();
+				replace();
+				throw e;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * kill every child, and every child still busy as soon as it's done;
+	 * nothing can be run after this
+	 */
+	synchronized void close() {
+		closed = true;
+		Child child;
+		while ((child = idle.poll()) != null) {
+			child.kill();
+		}
+	}
+
+	/**
+	 * put a child that's done with a batch back with the ready ones (or
+	 * kill it, if this has been closed)
+	 */
+	private synchronized void release(Child child) {
+		if (closed) {
+			child.kill();
+		}
+		else {
+			idle.add(child);
+		}
+	}
+
+	/**
+	 * start a child in place of one that was killed (unless this has been closed)
+	 */
+	private synchronized void replace() {
+		if (!closed) {
+			idle.add(new Child());
+		}
+	}
+
+	/**
+	 * get a ready child, waiting for it to finish starting if need be
+	 */
+	private Child take() {
+		try {
+			while (true) {
+				if (closed) {
+					throw new IllegalStateException("the forked JVMs have been closed");
+				}
+				Child child = idle.poll(100, TimeUnit.MILLISECONDS);
+				if (child == null) {
+					continue;
+				}
+				child.awaitReady();
+				if (child.isAlive()) {
+					return child;
+				}
+				// it died waiting for a batch (killed from outside, say)
+				replace();
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			throw new IllegalStateException("interrupted waiting for a forked JVM");
+		} catch (IOException e) {
+			throw new IllegalStateException("a forked JVM failed to start: " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * A child JVM and the thread that reads its messages
+	 *
+	 * @author michael
+	 *
+	 */
+	private class Child {
+
+		private final Process process;
+		private final DataOutputStream out;
+		// the messages read from the child so far (or the IOException that
+		// ended them)
+		private final BlockingQueue<Object> messages = new LinkedBlockingQueue<Object>();
+		// whether or not the child has said it's ready
+		private boolean ready;
+
+
+		Child() {
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(ForkedExecutor.class.getName());
+			command.add(suite.getName());
+			command.add(clazz.getName());
+
+			try {
+				process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			} catch (IOException e) {
+				throw new IllegalStateException("can't start a forked JVM: " + e.getMessage());
+			}
+			out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+
+			Thread reader = new Thread(this::read, "testbed-fork-reader");
+			// never keep the JVM alive just for the readers
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+
+		/**
+		 * read messages from the child until it closes its end of the pipe
+		 */
+		private void read() {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+			try {
+				while (true) {
+					byte kind = in.readByte();
+					switch (kind) {
+					case READY:
+					case END:
+						messages.add(kind);
+						break;
+					case COUNT:
+						messages.add(in.readLong());
+						break;
+					case ERROR:
+						messages.add(new IllegalStateException(in.readUTF()));
+						break;
+					case ITEM:
+						long index = in.readLong();
+						Object value = in.readByte() == ENCODED ? ResultCodec.readValue(in) : new Opaque(in.readUTF());
+						messages.add(new Object[] {index, value, in.readLong(), in.readLong(), in.readLong()});
+						break;
+					default:
+						throw new IOException("unknown message " + kind);
+					}
+				}
+			} catch (IOException e) {
+				messages.add(e instanceof EOFException ? new IOException("exited") : e);
+			}
+		}
+
+		/**
+		 * get the next message, waiting up to the given time
+		 *
+		 * @throws Timeout      if there wasn't one in time
+		 * @throws IOException  if the child died
+		 */
+		private Object next(long timeout) throws IOException {
+			Object m;
+			try {
+				m = messages.poll(timeout, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+				m = null;
+			}
+			if (m == null) {
+				throw new Timeout();
+			}
+			if (m instanceof IOException) {
+				// (so the next read fails the same way)
+				messages.add(m);
+				throw (IOException) m;
+			}
+			if (m instanceof IllegalStateException) {
+				throw (IllegalStateException) m;
+			}
+			return m;
+		}
+
+		/**
+		 * wait for the child to finish starting up
+		 */
+		void awaitReady() throws IOException {
+			if (!ready) {
+				Object m = next(STARTUP_TIMEOUT);
+				if (!Byte.valueOf(READY).equals(m)) {
+					throw new IOException("expected the forked JVM to be ready, not " + m);
+				}
+				ready = true;
+			}
+		}
+
+
+		/**
+		 * run (the rest of) a batch on this child, handing on the Results
+		 * as they come
+		 *
+		 * @param next     the index of the first tuple to invoke, moved along
+		 *                 as each Result comes back
+		 * @param count    the number of tuples
+		 * @param tuples   the tuples from the first one to invoke on
+		 * @param results  takes each Result, and returns false to stop
+		 * @return         false if results said to stop (the child is still
+		 *                 busy with the batch)
+		 * @throws IOException  if the child died or an invocation timed out
+		 *                      (the one at next is the one it was working on)
+		 */
+		boolean run(String description, MethodCatalog.Entry method, long[] next, long timeout, long count,
+				Iterator<Object[]> tuples, boolean measureResources, Predicate<Result> results) throws IOException {
+			out.writeUTF(description);
+			out.writeUTF(method.getName());
+			out.writeLong(next[0]);
+			out.writeBoolean(measureResources);
+			out.flush();
+
+			long n = (Long) next(STARTUP_TIMEOUT);
+			if (n != count) {
+				throw new IllegalStateException(description + " doesn't have the same domains for " + method.getName()
+						+ " in the forked JVM (" + n + " combinations there, " + count + " here)");
+			}
+
+			while (true) {
+				Object m = next(timeout + GRACE);
+				if (Byte.valueOf(END).equals(m)) {
+					return true;
+				}
+				Object[] item = (Object[]) m;
+				if ((Long) item[0] != next[0]) {
+					throw new IllegalStateException("the forked JVM sent Result " + item[0] + " instead of " + next[0]);
+				}
+				Result r = new Result(method.getMethod(), null, tuples.next(), item[1]);
+				r.setCost((Long) item[2], (Long) item[3], (Long) item[4]);
+				next[0]++;
+				if (!results.test(r)) {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * determine whether the child is still running
+		 */
+		boolean isAlive() {
+			return process.isAlive();
+		}
+
+		/**
+		 * kill the child
+		 */
+		void kill() {
+			process.destroyForcibly();
+		}
+	}
+
+
+	/**
+	 * An IOException meaning a child didn't answer in time
+	 *
+	 * @author michael
+	 *
+	 */
+	private static class Timeout extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		Timeout() {
+			super("timed out");
+		}
+	}
+
+	/**
+	 * Stands in for a result that can't be sent between JVMs (it never
+	 * equals any expected result)
+	 *
+	 * @author michael
+	 *
+	 */
+	static class Opaque {
+
+		// what the result was
+		private final String description;
+
+		Opaque(String description) {
+			this.description = description;
+		}
+
+		@Override
+		public String toString() {
+			return description;
+		}
+	}
+
+
+	/**
+	 * run as a child JVM: make the TestCases of a TestSuite and run the
+	 * batches read from stdin, writing the Results to stdout, until stdin
+	 * is closed
+	 *
+	 * @param args  the name of the TestSuite class and of the class being tested
+	 */
+	public static void main(String[] args) throws Exception {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+		// the tested code can print whatever it likes, just not onto the pipe
+		System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+
+		HashMap<String, TestCase> cases = new HashMap<String, TestCase>();
+		for (TestCase t : Class.forName(args[0]).asSubclass(TestSuite.class).getConstructor().newInstance().getTestCases()) {
+			cases.put(t.getDescription(), t);
+		}
+		MethodCatalog catalog = MethodCatalog.of(Class.forName(args[1]));
+		out.writeByte(READY);
+		out.flush();
+
+		while (true) {
+			String description, methodName;
+			long from;
+			boolean measureResources;
+			try {
+				description = in.readUTF();
+				methodName = in.readUTF();
+				from = in.readLong();
+				measureResources = in.readBoolean();
+			} catch (EOFException e) {
+				// the parent is done with us (or gone)
+				return;
+			}
+
+			TestCase tested = cases.get(description);
+			MethodCatalog.Entry method = catalog.get(methodName);
+			if (tested == null || method == null) {
+				out.writeByte(ERROR);
+				out.writeUTF(tested == null ? "no TestCase \"" + description + "\" in " + args[0] : "no method " + methodName + " in " + args[1]);
+				out.flush();
+				continue;
+			}
+
+			DomainSet params = tested.getParams();
+			Tuples tuples = Tuples.of(method, params.getStrength(methodName), params.getDomain(methodName));
+			out.writeByte(COUNT);
+			out.writeLong(tuples.count());
+
+			long i = from;
+			for (Iterator<Object[]> it = tuples.iterator(from); it.hasNext(); i++) {
+				Executor executor = new Executor(tested.getOp(), method, it.next());
+				executor.setMeasureResources(measureResources);
+				executor.run();
+				Result r = executor.result();
+
+				out.writeByte(ITEM);
+				out.writeLong(i);
+				writeValue(out, r.getResult());
+				out.writeLong(r.getElapsedNanos());
+				out.writeLong(r.getCpuNanos());
+				out.writeLong(r.getAllocatedBytes());
+				// every Result goes out right away, so the parent knows which one hangs
+				out.flush();
+			}
+			out.writeByte(END);
+			out.flush();
+		}
+	}
+
+	/**
+	 * write a value, or a description of it if the ResultCodec can't encode it
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ResultCodec.writeValue(new DataOutputStream(bytes), value);
+			out.writeByte(ENCODED);
+			bytes.writeTo(out);
+		} catch (IOException e) {
+			out.writeByte(OPAQUE);
+			out.writeUTF(value.getClass().getName() + ": " + value);
+		}
+	}
+}
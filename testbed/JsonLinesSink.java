@@ -0,0 +1,165 @@
+package testbed;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A ResultSink that writes one JSON object per line, for tools rather
+ * than people
+ * 
+ * <p>
+ * 
+ * Every comparison becomes a line like
+ * 
+ * <pre>
+ * {"case":"empty list","status":"fail","method":"get","params":"[0]","achieved":"null","nanos":1800,"expected":"java.lang.IndexOutOfBoundsException"}
+ * </pre>
+ * 
+ * Budget checks are lines with "status":"budget pass" or "budget fail",
+ * and the run ends with a line with "status":"summary".
+ * 
+ * @author michael
+ *
+ */
+public class JsonLinesSink implements ResultSink {
+	
+	// where the lines go
+	private final Writer out;
+	
+	
+	/**
+	 * create a new JsonLinesSink that writes to the given Writer
+	 * 
+	 * @param out  where to write the lines
+	 */
+	public JsonLinesSink(Writer out) {
+		this.out = new BufferedWriter(out);
+	}
+	
+	
+	@Override
+	public void pass(String description, Result achieved) {
+		write("{\"case\":" + quote(description) + ",\"status\":\"pass\"" + fields(achieved) + "}\n");
+	}
+	
+	@Override
+	public void fail(String description, Result achieved, Result expected) {
+		write("{\"case\":" + quote(description) + ",\"status\":\"fail\"" + fields(achieved) 
+			+ ",\"expected\":" + quote(String.valueOf(expected)) + "}\n");
+	}
+	
+	@Override
+	public void budgetPass(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		write("{\"case\":" + quote(description) + ",\"status\":\"budget pass\"" + fields(methodName, budget, outcome) + "}\n");
+	}
+	
+	@Override
+	public void budgetFail(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		write("{\"case\":" + quote(description) + ",\"status\":\"budget fail\"" + fields(methodName, budget, outcome) + "}\n");
+	}
+	
+	@Override
+	public void caseDone(String description) {
+		flush();
+	}
+	
+	@Override
+	public void summary(int total, int passes, int failures) {
+		write("{\"status\":\"summary\",\"total\":" + total + ",\"passes\":" + passes 
+			+ ",\"failures\":" + failures + "}\n");
+		flush();
+	}
+	
+	
+	/**
+	 * get the JSON fields describing the given achieved Result
+	 */
+	private static String fields(Result r) {
+		StringBuilder s = new StringBuilder();
+		if (r.getMethod() != null) {
+			s.append(",\"method\":").append(quote(r.getMethod().getName()));
+			s.append(",\"params\":").append(quote(Arrays.deepToString(r.getParams())));
+		}
+		Object o = r.getResult();
+		s.append(",\"achieved\":").append(quote(o instanceof Throwable ? o.getClass().getName() : String.valueOf(o)));
+		if (r.getElapsedNanos() >= 0) {
+			s.append(",\"nanos\":").append(r.getElapsedNanos());
+		}
+		if (r.getCpuNanos() >= 0) {
+			s.append(",\"cpuNanos\":").append(r.getCpuNanos());
+		}
+		if (r.getAllocatedBytes() >= 0) {
+			s.append(",\"allocatedBytes\":").append(r.getAllocatedBytes());
+		}
+		return s.toString();
+	}
+	
+	/**
+	 * get the JSON fields describing the given budget check
+	 */
+	private static String fields(String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		return ",\"method\":" + quote(methodName) + ",\"budget\":" + quote(budget.toString()) 
+			+ ",\"measured\":" + quote(outcome.getMeasured());
+	}
+	
+	/**
+	 * get the given String as a JSON string literal
+	 */
+	static String quote(String s) {
+		StringBuilder q = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				q.append("\\\"");
+				break;
+			case '\\':
+				q.append("\\\\");
+				break;
+			case '\n':
+				q.append("\\n");
+				break;
+			case '\r':
+				q.append("\\r");
+				break;
+			case '\t':
+				q.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					q.append(String.format("\\u%04x", (int) c));
+				}
+				else {
+					q.append(c);
+				}
+			}
+		}
+		return q.append('"').toString();
+	}
+	
+	
+	/**
+	 * write the given text
+	 */
+	private void write(String s) {
+		try {
+			out.write(s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * push everything buffered so far out to the Writer
+	 */
+	private void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
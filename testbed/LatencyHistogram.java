@@ -0,0 +1,188 @@
+package testbed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies (in nanoseconds), laid out like an HdrHistogram:
+ * the buckets grow with the magnitude of the value, so every recorded
+ * value is known to within about 1.5%, from one nanosecond up to
+ * Long.MAX_VALUE, in a fixed amount of memory.
+ *
+ * <p>
+ *
+ * Values below 128 get a bucket each. Above that, every power of two is
+ * split into 64 equal buckets. Recording is lock-free, so any number of
+ * threads can record into the same histogram.
+ *
+ * @author michael
+ *
+ */
+public class LatencyHistogram {
+
+	// the number of bits of each value that are kept exactly
+	private static final int SUB_BUCKET_BITS = 7;
+	// the number of buckets below the first power of two that's split
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// the number of buckets each power of two after that is split into
+	private static final int HALF = SUB_BUCKETS / 2;
+	// enough buckets for any (non-negative) long
+	private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * HALF;
+
+	// the number of values recorded in each bucket
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	// the number of values recorded
+	private final AtomicLong count = new AtomicLong();
+	// the sum of the values recorded
+	private final AtomicLong sum = new AtomicLong();
+	// the smallest and largest values recorded
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+
+	/**
+	 * record a value
+	 *
+	 * @param nanos  the latency to record (negative values are ignored)
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		counts.incrementAndGet(bucket(nanos));
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+
+		long m;
+		while (nanos < (m = min.get()) && !min.compareAndSet(m, nanos));
+		while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos));
+	}
+
+	/**
+	 * record every value recorded by another histogram
+	 *
+	 * @param other  the histogram to add to this one
+	 */
+	public void add(LatencyHistogram other) {
+		if (other.getCount() == 0) {
+			return;
+		}
+		for (int i = 0; i < BUCKETS; i++) {
+			long c = other.counts.get(i);
+			if (c != 0) {
+				counts.addAndGet(i, c);
+			}
+		}
+		count.addAndGet(other.count.get());
+		sum.addAndGet(other.sum.get());
+
+		long m;
+		long otherMin = other.min.get(), otherMax = other.max.get();
+		while (otherMin < (m = min.get()) && !min.compareAndSet(m, otherMin));
+		while (otherMax > (m = max.get()) && !max.compareAndSet(m, otherMax));
+	}
+
+
+	/**
+	 * get the number of values recorded
+	 *
+	 * @return  the number of values
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * get the smallest value recorded
+	 *
+	 * @return  the smallest value, or 0 if there aren't any
+	 */
+	public long getMin() {
+		return getCount() == 0 ? 0 : min.get();
+	}
+
+	/**
+	 * get the largest value recorded
+	 *
+	 * @return  the largest value, or 0 if there aren't any
+	 */
+	public long getMax() {
+		return getCount() == 0 ? 0 : max.get();
+	}
+
+	/**
+	 * get the mean of the values recorded
+	 *
+	 * @return  the mean, or 0 if there aren't any
+	 */
+	public double getMean() {
+		long c = getCount();
+		return c == 0 ? 0 : (double) sum.get() / c;
+	}
+
+	/**
+	 * get the value at the given percentile: the largest value that
+	 * could be in the same bucket as the value that many percent of
+	 * the recorded values are less than or equal to
+	 *
+	 * @param percentile  the percentile (0 to 100)
+	 * @return            the value at the percentile, or 0 if there aren't any
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		long c = getCount();
+		if (c == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * c));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				// (no value can be beyond the largest one recorded)
+				return Math.min(highest(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+
+	/**
+	 * get a one line summary of this histogram
+	 *
+	 */
+	@Override
+	public String toString() {
+		return "count=" + getCount() + " min=" + getMin() + "ns p50=" + getValueAtPercentile(50)
+			+ "ns p90=" + getValueAtPercentile(90) + "ns p99=" + getValueAtPercentile(99)
+			+ "ns max=" + getMax() + "ns mean=" + String.format("%.1f", getMean()) + "ns";
+	}
+
+
+	/**
+	 * get the bucket the given (non-negative) value goes in
+	 */
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		// shift the value down until it's between HALF and SUB_BUCKETS
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >>> shift) - HALF);
+	}
+
+	/**
+	 * get the largest value that goes in the given bucket
+	 */
+	static long highest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKETS) / HALF + 1;
+		long top = (bucket - SUB_BUCKETS) % HALF + HALF;
+		return (top << shift) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,208 @@
+package testbed;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The public methods of a tested class, along with everything the Tester
+ * needs to know about them, worked out once per class.
+ * 
+ * <p>
+ * 
+ * Catalogs are shared: every Tester (and every thread) testing the same
+ * class gets the same one.
+ * 
+ * @author michael
+ *
+ */
+public class MethodCatalog {
+	
+	// the catalog of every class looked at so far
+	private static final ConcurrentHashMap<Class<?>, MethodCatalog> CATALOGS = new ConcurrentHashMap<Class<?>, MethodCatalog>();
+	
+	// the tested methods, in the order the class declares them
+	private final List<Entry> entries;
+	// the tested methods by formatted name
+	private final HashMap<String, Entry> byName;
+	
+	
+	/**
+	 * get the catalog of the given class
+	 * 
+	 * @param clazz  the tested class
+	 * @return       the catalog of its public methods
+	 */
+	public static MethodCatalog of(Class<?> clazz) {
+		return CATALOGS.computeIfAbsent(clazz, MethodCatalog::new);
+	}
+	
+	
+	/**
+	 * build the catalog of the given class
+	 * 
+	 * @param clazz  the tested class
+	 */
+	private MethodCatalog(Class<?> clazz) {
+		ArrayList<Entry> list = new ArrayList<Entry>();
+		this.byName = new HashMap<String, Entry>();
+		
+		for (Method m : clazz.getDeclaredMethods()) {
+			// If the method is public and is not implicitly generated by the compiler
+			if (Modifier.isPublic(m.getModifiers()) && !m.isSynthetic()) {
+				Entry e = new Entry(m);
+				list.add(e);
+				byName.put(e.name, e);
+			}
+		}
+		this.entries = Collections.unmodifiableList(list);
+	}
+	
+	
+	/**
+	 * get every tested method of the class
+	 * 
+	 * @return  the tested methods, in the order the class declares them
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * get the tested method with the given formatted name
+	 * 
+	 * @param name  the formatted name (see Tester.getMethodName)
+	 * @return      the method, or null if there isn't one by that name
+	 */
+	public Entry get(String name) {
+		return byName.get(name);
+	}
+	
+	
+	// the arguments of a method with no parameters
+	private static final Object[] NO_ARGS = new Object[0];
+	
+	
+	/**
+	 * A tested method and what's known about it
+	 * 
+	 * @author michael
+	 *
+	 */
+	public static class Entry {
+		
+		// the method (made accessible, if allowed, so invoking it is cheaper)
+		private final Method method;
+		// its formatted name
+		private final String name;
+		// its number of parameters
+		private final int parameterCount;
+		// its parameter types, with primitives swapped for their wrappers
+		private final Class<?>[] argumentTypes;
+		// whether or not each parameter is a primitive (and so can't be null)
+		private final boolean[] primitive;
+		// the class the receiver has to be an instance of (null if the method is static)
+		private final Class<?> receiverType;
+		// calls the method without going through reflection (null if it can't)
+		private final Invoker invoker;
+		
+		
+		private Entry(Method method) {
+			try {
+				// skip the access checks on every invocation
+				method.setAccessible(true);
+			} catch (RuntimeException e) {
+				// (not allowed for this class; the checks will just happen)
+			}
+			this.method = method;
+			this.name = Tester.getMethodName(method);
+			this.parameterCount = method.getParameterCount();
+			
+			Class<?>[] types = method.getParameterTypes();
+			this.argumentTypes = new Class<?>[types.length];
+			this.primitive = new boolean[types.length];
+			for (int i = 0; i < types.length; i++) {
+				argumentTypes[i] = MethodType.methodType(types[i]).wrap().returnType();
+				primitive[i] = types[i].isPrimitive();
+			}
+			this.receiverType = Modifier.isStatic(method.getModifiers()) ? null : method.getDeclaringClass();
+			this.invoker = Invoker.forMethod(method);
+		}
+		
+		
+		/**
+		 * determine whether the method can be invoked directly with the given 
+		 * receiver and arguments and do exactly what Method.invoke would. That's 
+		 * when the receiver is an instance of the method's class (or the method 
+		 * is static) and every argument is an instance of its parameter's type 
+		 * (or the wrapper of it), and isn't null if the parameter is a primitive. 
+		 * Anything else, like a widening conversion or a bad argument, is left 
+		 * to Method.invoke.
+		 * 
+		 * @param receiver  the object the method would be invoked on
+		 * @param args      the arguments
+		 * @return          whether or not invoke can be used
+		 */
+		boolean canInvokeDirectly(Object receiver, Object[] args) {
+			if (invoker == null || (receiverType != null && !receiverType.isInstance(receiver))) {
+				return false;
+			}
+			int length = args == null ? 0 : args.length;
+			if (length != parameterCount) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (args[i] == null ? primitive[i] : !argumentTypes[i].isInstance(args[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * invoke the method directly. Only call this after checking
+		 * canInvokeDirectly.
+		 * 
+		 * @param receiver  the object to invoke the method on (ignored if it's static)
+		 * @param args      the arguments
+		 * @return          whatever the method returned (null if it's void)
+		 * @throws Throwable  whatever the method threw, unwrapped
+		 */
+		Object invoke(Object receiver, Object[] args) throws Throwable {
+			return invoker.invoke(receiver, args == null ? NO_ARGS : args);
+		}
+		
+		
+		/**
+		 * get the method
+		 * 
+		 * @return  the method
+		 */
+		public Method getMethod() {
+			return method;
+		}
+		
+		/**
+		 * get the formatted name of the method
+		 * 
+		 * @return  the formatted name (see Tester.getMethodName)
+		 */
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * get the number of parameters of the method
+		 * 
+		 * @return  the number of parameters
+		 */
+		public int getParameterCount() {
+			return parameterCount;
+		}
+	}
+}
@@ -0,0 +1,389 @@
+package testbed;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An expectation about how fast a method is, rather than what it returns.
+ * A ResultSet can hold budgets alongside the expected Results of a method,
+ * and a Tester checks them against the latencies of the invocations it made.
+ *
+ * <p>
+ *
+ * There are two kinds. A latency budget puts a ceiling on a percentile of
+ * the method's latencies:
+ *
+ * <pre>
+ *     &#64;p99=50us     &#64;p50=800ns     &#64;max=2ms
+ * </pre>
+ *
+ * A complexity budget says the method's latency grows no faster than an
+ * order of growth, fitted over the sizes it was invoked with:
+ *
+ * <pre>
+ *     &#64;O(nlogn)     &#64;O(n)     &#64;O(1)
+ * </pre>
+ *
+ * The size of an invocation is its first parameter that has one: a number
+ * is its own size, and a collection, map, array or string has its length.
+ * So a method meant to meet a complexity budget should be tested over a
+ * ladder of sizes.
+ *
+ * @author michael
+ *
+ */
+public class PerformanceBudget {
+
+	// how much worse than the best fit a complexity budget's own fit can be
+	// and still count as met (timings are noisy; small ladders more so)
+	private static final double TOLERANCE = 1.25;
+	// the fewest distinct sizes a complexity budget can be checked over
+	private static final int MIN_SIZES = 3;
+	// the units times are written in (besides ns)
+	private static final long[] SCALES = {1000000000L, 1000000L, 1000L};
+	private static final String[] UNITS = {"s", "ms", "us"};
+
+	// the percentile of a latency budget (NaN for a complexity budget)
+	private final double percentile;
+	// the ceiling of a latency budget, in ns
+	private final long limit;
+	// the order of growth of a complexity budget (null for a latency budget)
+	private final Complexity complexity;
+
+
+	private PerformanceBudget(double percentile, long limit, Complexity complexity) {
+		this.percentile = percentile;
+		this.limit = limit;
+		this.complexity = complexity;
+	}
+
+
+	/**
+	 * create a budget on a percentile of a method's latencies
+	 *
+	 * @param percentile  the percentile (0 to 100; 100 is the slowest invocation)
+	 * @param nanos       the most that percentile can be, in nanoseconds
+	 * @return            the budget
+	 */
+	public static PerformanceBudget latency(double percentile, long nanos) {
+		if (!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		if (nanos < 0) {
+			throw new IllegalArgumentException("a latency can't be negative");
+		}
+		return new PerformanceBudget(percentile, nanos, null);
+	}
+
+	/**
+	 * create a budget on how fast a method's latency grows with the
+	 * size of its invocations
+	 *
+	 * @param complexity  the fastest the latency may grow
+	 * @return            the budget
+	 */
+	public static PerformanceBudget complexity(Complexity complexity) {
+		if (complexity == null) {
+			throw new IllegalArgumentException("complexity can't be null");
+		}
+		return new PerformanceBudget(Double.NaN, -1, complexity);
+	}
+
+	/**
+	 * read a budget written the way the ResultParser markup writes them
+	 * (see the top of this class)
+	 *
+	 * @param s  the budget, starting with '@'
+	 * @return   the budget
+	 * @throws IllegalArgumentException  if it isn't a budget
+	 */
+	public static PerformanceBudget parse(String s) {
+		if (!s.startsWith("@")) {
+			throw new IllegalArgumentException(s + " is not a budget (budgets start with @)");
+		}
+		String b = s.substring(1);
+
+		if (b.startsWith("O(")) {
+			return complexity(Complexity.parse(b));
+		}
+
+		int eq = b.indexOf('=');
+		if (eq < 0) {
+			throw new IllegalArgumentException(s + " is not a budget (expected @pNN=<time> or @O(...))");
+		}
+		String which = b.substring(0, eq);
+		double percentile;
+		if (which.equals("max")) {
+			percentile = 100;
+		}
+		else if (which.startsWith("p")) {
+			try {
+				percentile = Double.parseDouble(which.substring(1));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(s + " has a bad percentile");
+			}
+		}
+		else {
+			throw new IllegalArgumentException(s + " is not a budget (expected @pNN=<time> or @O(...))");
+		}
+		return latency(percentile, parseNanos(b.substring(eq + 1)));
+	}
+
+
+	/**
+	 * determine whether this is a latency budget (as opposed to a complexity one)
+	 *
+	 * @return  whether or not this is a latency budget
+	 */
+	public boolean isLatency() {
+		return complexity == null;
+	}
+
+	/**
+	 * get the percentile of this latency budget
+	 *
+	 * @return  the percentile (NaN if this is a complexity budget)
+	 */
+	public double getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 * get the most the percentile of this latency budget can be
+	 *
+	 * @return  the ceiling in nanoseconds (-1 if this is a complexity budget)
+	 */
+	public long getLimitNanos() {
+		return limit;
+	}
+
+	/**
+	 * get the order of growth of this complexity budget
+	 *
+	 * @return  the order of growth (null if this is a latency budget)
+	 */
+	public Complexity getComplexity() {
+		return complexity;
+	}
+
+
+	/**
+	 * check this budget against the Results of a method's invocations.
+	 * Invocations that timed out count as slower than any budget.
+	 *
+	 * @param achieved  the Results of the method
+	 * @return          whether the budget was met and what was measured
+	 */
+	public Outcome check(Result[] achieved) {
+		if (isLatency()) {
+			LatencyHistogram h = new LatencyHistogram();
+			for (Result r : achieved) {
+				h.record(r.getResult() instanceof InfiniteLoopException ? Long.MAX_VALUE : r.getElapsedNanos());
+			}
+			if (h.getCount() == 0) {
+				return new Outcome(false, "no timed invocations");
+			}
+			long measured = h.getValueAtPercentile(percentile);
+			return new Outcome(measured <= limit, which() + "=" + (measured == Long.MAX_VALUE ? "timeout" : approximateNanos(measured)));
+		}
+
+		ArrayList<Double> sizes = new ArrayList<Double>();
+		ArrayList<Double> times = new ArrayList<Double>();
+		for (Result r : achieved) {
+			double n = sizeOf(r.getParams());
+			if (r.getResult() instanceof InfiniteLoopException) {
+				return new Outcome(false, "timed out" + (n >= 0 ? " at n=" + (long) n : ""));
+			}
+			if (n >= 0 && r.getElapsedNanos() >= 0) {
+				sizes.add(n);
+				times.add((double) r.getElapsedNanos());
+			}
+		}
+
+		double[][] m = Complexity.medians(unbox(sizes), unbox(times));
+		if (m[0].length < MIN_SIZES) {
+			return new Outcome(false, "only " + m[0].length + " sizes to fit (need " + MIN_SIZES + ")");
+		}
+		Complexity.Fit best = Complexity.bestFit(m[0], m[1]);
+		Complexity.Fit own = complexity.fit(m[0], m[1]);
+		boolean met = best.getComplexity().compareTo(complexity) <= 0 || own.getError() <= best.getError() * TOLERANCE;
+		return new Outcome(met, best.toString());
+	}
+
+
+	/**
+	 * get this budget written the way the ResultParser markup writes it
+	 */
+	@Override
+	public String toString() {
+		return isLatency() ? "@" + which() + "=" + formatNanos(limit) : "@" + complexity;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof PerformanceBudget && o.toString().equals(toString());
+	}
+
+	@Override
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+
+	/**
+	 * get the name of the percentile of this latency budget, like p99
+	 */
+	private String which() {
+		if (percentile == 100) {
+			return "max";
+		}
+		return percentile == Math.rint(percentile) ? "p" + (long) percentile : "p" + percentile;
+	}
+
+
+	/**
+	 * get the size of an invocation with the given parameters
+	 *
+	 * @param params  the parameters
+	 * @return        the size of the first parameter that has one, or -1
+	 */
+	static double sizeOf(Object[] params) {
+		if (params == null) {
+			return -1;
+		}
+		for (Object p : params) {
+			if (p instanceof Number) {
+				return ((Number) p).doubleValue();
+			}
+			if (p instanceof Collection) {
+				return ((Collection<?>) p).size();
+			}
+			if (p instanceof Map) {
+				return ((Map<?, ?>) p).size();
+			}
+			if (p instanceof CharSequence) {
+				return ((CharSequence) p).length();
+			}
+			if (p != null && p.getClass().isArray()) {
+				return Array.getLength(p);
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * read a time like 50us, 1.5ms or 800ns (ns if there's no unit)
+	 */
+	static long parseNanos(String s) {
+		String[] units = {"ns", "us", "\u00b5s", "ms", "s"};
+		double[] scale = {1, 1e3, 1e3, 1e6, 1e9};
+		for (int i = 0; i < units.length; i++) {
+			if (s.endsWith(units[i])) {
+				// (so "ns" and "ms" aren't read as a number of seconds)
+				String number = s.substring(0, s.length() - units[i].length());
+				if (!number.isEmpty() && Character.isDigit(number.charAt(number.length() - 1))) {
+					return toNanos(number, scale[i], s);
+				}
+			}
+		}
+		return toNanos(s, 1, s);
+	}
+
+	/**
+	 * read a number of some unit as nanoseconds
+	 */
+	private static long toNanos(String number, double scale, String s) {
+		try {
+			double nanos = Double.parseDouble(number) * scale;
+			if (nanos < 0 || Double.isNaN(nanos)) {
+				throw new IllegalArgumentException(s + " is not a time");
+			}
+			return Math.round(Math.min(nanos, Long.MAX_VALUE));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(s + " is not a time");
+		}
+	}
+
+	/**
+	 * write a time exactly, in the biggest unit it's a whole number of
+	 */
+	static String formatNanos(long nanos) {
+		for (int i = 0; i < SCALES.length; i++) {
+			if (nanos >= SCALES[i] && nanos % SCALES[i] == 0) {
+				return nanos / SCALES[i] + UNITS[i];
+			}
+		}
+		return nanos + "ns";
+	}
+	
+	/**
+	 * write a time to a tenth of the biggest unit it has at least one of
+	 */
+	static String approximateNanos(long nanos) {
+		for (int i = 0; i < SCALES.length; i++) {
+			if (nanos >= SCALES[i]) {
+				return String.format("%.1f%s", (double) nanos / SCALES[i], UNITS[i]);
+			}
+		}
+		return nanos + "ns";
+	}
+
+	/**
+	 * get the values of a list of Doubles
+	 */
+	private static double[] unbox(ArrayList<Double> list) {
+		double[] ret = new double[list.size()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = list.get(i);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * Whether a budget was met, and what was measured
+	 *
+	 * @author michael
+	 *
+	 */
+	public static class Outcome {
+
+		// whether or not the budget was met
+		private final boolean met;
+		// what was measured, like p99=63.2us or O(n^2)
+		private final String measured;
+
+
+		Outcome(boolean met, String measured) {
+			this.met = met;
+			this.measured = measured;
+		}
+
+
+		/**
+		 * determine whether the budget was met
+		 *
+		 * @return  whether or not it was met
+		 */
+		public boolean isMet() {
+			return met;
+		}
+
+		/**
+		 * get what was measured
+		 *
+		 * @return  a description of the measurement, like p99=63.2us or O(n^2)
+		 */
+		public String getMeasured() {
+			return measured;
+		}
+
+		@Override
+		public String toString() {
+			return measured;
+		}
+	}
+}
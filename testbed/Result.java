@@ -28,6 +28,11 @@ public class Result {
 	private Object object;
 	// The parameters with which the method was called
 	private Object[] params;
+	// How long the call took (wall clock and CPU), in ns, and how many 
+	// bytes it allocated. -1 for whatever wasn't measured.
+	private long elapsed = -1;
+	private long cpuTime = -1;
+	private long allocated = -1;
 	
 	/**
 	 * constructs a new result
@@ -193,6 +198,42 @@ public class Result {
 	public Object[] getParams() {
 		return params;
 	}
+	/**
+	 * get the wall clock time the method invocation of this Result took
+	 * 
+	 * @return  the time taken in nanoseconds, or -1 if it wasn't measured
+	 */
+	public long getElapsedNanos() {
+		return elapsed;
+	}
+	/**
+	 * get the CPU time the method invocation of this Result took
+	 * 
+	 * @return  the CPU time taken in nanoseconds, or -1 if it wasn't measured
+	 */
+	public long getCpuNanos() {
+		return cpuTime;
+	}
+	/**
+	 * get the number of bytes allocated by the method invocation of this Result
+	 * 
+	 * @return  the bytes allocated, or -1 if they weren't measured
+	 */
+	public long getAllocatedBytes() {
+		return allocated;
+	}
+	/**
+	 * record what the method invocation of this Result cost
+	 * 
+	 * @param elapsed    the wall clock time taken in nanoseconds
+	 * @param cpuTime    the CPU time taken in nanoseconds (-1 if not measured)
+	 * @param allocated  the bytes allocated (-1 if not measured)
+	 */
+	void setCost(long elapsed, long cpuTime, long allocated) {
+		this.elapsed = elapsed;
+		this.cpuTime = cpuTime;
+		this.allocated = allocated;
+	}
 	
 	
 	
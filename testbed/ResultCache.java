@@ -0,0 +1,396 @@
+package testbed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of Results that lives on disk between runs, so that testing a
+ * class that hasn't changed since the last run doesn't invoke anything.
+ *
+ * <pre>
+ *     ResultCache cache = new ResultCache("results.cache", 100000);
+ *     tester.setResultCache(cache);
+ *     tester.testAll(cases);
+ *     cache.save();
+ * </pre>
+ *
+ * <p>
+ *
+ * A Result is found by a SHA-256 hash of the bytecode of the tested class
+ * (and its superclasses), the TestCase's description, the formatted method
+ * name (see Tester.getMethodName), and the parameters, written the way
+ * ResultCodec writes values. Recompiling a changed class changes its hash,
+ * so everything cached for the old version is just never found again (and
+ * eventually evicted). Only the tested class is hashed, not the classes it
+ * calls, and a TestCase's description has to identify its object (as it
+ * does for FORKED execution).
+ *
+ * <p>
+ *
+ * Only Results that will come out the same next time are cached: an
+ * InfiniteLoopException depends on how busy the machine was, an iterator
+ * has state that can't be written down, and a value ResultCodec can't
+ * write can't be kept either. Invocations with parameters ResultCodec
+ * can't write (Consumers, say) are never cached.
+ *
+ * <p>
+ *
+ * When the cache is full the least recently used Results are evicted.
+ *
+ * @author michael
+ *
+ */
+public class ResultCache {
+
+	// "TBRC"
+	static final int MAGIC = 0x54425243;
+	static final short VERSION = 1;
+
+	// the file the cache is loaded from and saved to
+	private final String filename;
+	// the most Results kept
+	private final int capacity;
+	// the cached Results, least recently used first
+	private final LinkedHashMap<String, Cached> entries;
+	// the number of lookups that found (and didn't find) a Result
+	private long hits, misses;
+
+	// the hash of the bytecode of each class seen so far
+	// (an empty String if its bytecode couldn't be read)
+	private static final ConcurrentHashMap<Class<?>, String> BYTECODE = new ConcurrentHashMap<Class<?>, String>();
+
+
+	/**
+	 * create a ResultCache, loading whatever has been saved to the given file
+	 *
+	 * @param filename  the file to load from and save to (it doesn't have to exist yet)
+	 * @param capacity  the most Results to keep
+	 * @throws IOException  if the file exists but isn't a cache file
+	 */
+	public ResultCache(String filename, int capacity) throws IOException {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.filename = filename;
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+				return size() > ResultCache.this.capacity;
+			}
+		};
+		load();
+	}
+
+
+	/**
+	 * get the keys of the invocations of a method with each of the given tuples
+	 *
+	 * @param clazz        the tested class
+	 * @param description  the description of the TestCase
+	 * @param method       the (cataloged) method being invoked
+	 * @param tuples       the parameters of each invocation
+	 * @return             the key of each invocation, or null for the ones
+	 *                     that can't be cached
+	 */
+	String[] keys(Class<?> clazz, String description, MethodCatalog.Entry method, Object[][] tuples) {
+		String[] ret = new String[tuples.length];
+		String bytecode = bytecode(clazz);
+		if (bytecode.isEmpty()) {
+			return ret;
+		}
+
+		// everything but the parameters is the same for every tuple
+		ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(prefix);
+		try {
+			out.writeUTF(bytecode);
+			out.writeUTF(description);
+			out.writeUTF(method.getName());
+		} catch (IOException e) {
+			// (a description too long to write)
+			return ret;
+		}
+		MessageDigest head = sha256();
+		head.update(prefix.toByteArray());
+
+		for (int i = 0; i < tuples.length; i++) {
+			ByteArrayOutputStream params = new ByteArrayOutputStream();
+			if (encode(new DataOutputStream(params), tuples[i])) {
+				try {
+					MessageDigest d = (MessageDigest) head.clone();
+					ret[i] = hex(d.digest(params.toByteArray()));
+				} catch (CloneNotSupportedException e) {
+					// (SHA-256 digests can always be cloned)
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * get the key of one invocation of a method
+	 *
+	 * @param clazz        the tested class
+	 * @param description  the description of the TestCase
+	 * @param method       the (cataloged) method being invoked
+	 * @param params       the parameters of the invocation
+	 * @return             the key, or null if the invocation can't be cached
+	 */
+	String key(Class<?> clazz, String description, MethodCatalog.Entry method, Object[] params) {
+		return keys(clazz, description, method, new Object[][] {params})[0];
+	}
+
+	/**
+	 * determine whether an invocation has a cached Result, without counting
+	 * it as a hit or a miss
+	 *
+	 * @param key  the key of the invocation (see keys)
+	 * @return     whether or not there's a Result cached for it
+	 */
+	synchronized boolean contains(String key) {
+		return entries.containsKey(key);
+	}
+
+	/**
+	 * get the cached Result of an invocation
+	 *
+	 * @param key     the key of the invocation (see keys)
+	 * @param method  the (cataloged) method invoked
+	 * @param params  the parameters it was invoked with
+	 * @return        the Result, or null if there isn't one
+	 */
+	synchronized Result get(String key, MethodCatalog.Entry method, Object[] params) {
+		Cached e = entries.get(key);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		Result r = new Result(method.getMethod(), null, params, e.value);
+		r.setCost(e.elapsed, e.cpuTime, e.allocated);
+		return r;
+	}
+
+	/**
+	 * cache the Result of an invocation, if it will come out the same next time
+	 *
+	 * @param key  the key of the invocation (see keys)
+	 * @param r    its Result
+	 */
+	synchronized void put(String key, Result r) {
+		if (isCacheable(r.getResult())) {
+			entries.put(key, new Cached(r.getResult(), r.getElapsedNanos(), r.getCpuNanos(), r.getAllocatedBytes()));
+		}
+	}
+
+
+	/**
+	 * get the number of lookups so far that found a cached Result
+	 *
+	 * @return  the number of hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * get the number of lookups so far that didn't find a cached Result
+	 *
+	 * @return  the number of misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * get the number of Results cached
+	 *
+	 * @return  the size of the cache
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * forget every cached Result (the file isn't touched until the next save)
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+
+	/**
+	 * save the cache to its file
+	 *
+	 * @throws IOException  if the file can't be written
+	 */
+	public synchronized void save() throws IOException {
+		// written next to the file and moved over it, so a run that dies
+		// halfway through doesn't leave half a cache behind
+		File file = new File(filename);
+		File tmp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeInt(entries.size());
+			// least recently used first, so loading them keeps their order
+			for (Map.Entry<String, Cached> e : entries.entrySet()) {
+				out.writeUTF(e.getKey());
+				ResultCodec.writeValue(out, e.getValue().value);
+				out.writeLong(e.getValue().elapsed);
+				out.writeLong(e.getValue().cpuTime);
+				out.writeLong(e.getValue().allocated);
+			}
+		}
+		if (!tmp.renameTo(file)) {
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				throw new IOException("can't replace " + filename);
+			}
+		}
+	}
+
+	/**
+	 * load the cache from its file, if there is one
+	 */
+	private void load() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(filename + " isn't a result cache");
+			}
+			short version = in.readShort();
+			if (version != VERSION) {
+				throw new IOException("unsupported result cache version " + version);
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				Object value = ResultCodec.readValue(in);
+				entries.put(key, new Cached(value, in.readLong(), in.readLong(), in.readLong()));
+			}
+		} catch (FileNotFoundException e) {
+			// nothing saved yet
+		}
+	}
+
+
+	/**
+	 * determine whether a result will come out the same every time
+	 */
+	private static boolean isCacheable(Object result) {
+		return !(result instanceof InfiniteLoopException)
+				&& !(result instanceof Iterator)
+				&& !(result instanceof Spliterator)
+				&& ResultCodec.canEncode(result);
+	}
+
+	/**
+	 * write the parameters of an invocation
+	 *
+	 * @return  false if they can't all be written
+	 */
+	private static boolean encode(DataOutputStream out, Object[] params) {
+		try {
+			if (params == null) {
+				out.writeInt(-1);
+				return true;
+			}
+			out.writeInt(params.length);
+			for (Object p : params) {
+				if (!ResultCodec.canEncode(p)) {
+					return false;
+				}
+				ResultCodec.writeValue(out, p);
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * get the hash of the bytecode of a class and its superclasses
+	 *
+	 * @return  the hash, or an empty String if the bytecode can't be read
+	 */
+	static String bytecode(Class<?> clazz) {
+		return BYTECODE.computeIfAbsent(clazz, c -> {
+			MessageDigest d = sha256();
+			byte[] buf = new byte[8192];
+			// (up to the classes of the JDK, which only change with it)
+			for (Class<?> k = c; k != null && k.getClassLoader() != null; k = k.getSuperclass()) {
+				String name = k.getName();
+				try (InputStream in = k.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+					if (in == null) {
+						return "";
+					}
+					int n;
+					while ((n = in.read(buf)) > 0) {
+						d.update(buf, 0, n);
+					}
+				} catch (IOException e) {
+					return "";
+				}
+				d.update(name.getBytes(StandardCharsets.UTF_8));
+			}
+			return hex(d.digest());
+		});
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// (every JVM has to have SHA-256)
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder ret = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			ret.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return ret.toString();
+	}
+
+
+	/**
+	 * A cached Result: its value and what it cost when it was produced
+	 *
+	 * @author michael
+	 *
+	 */
+	private static class Cached {
+		final Object value;
+		final long elapsed, cpuTime, allocated;
+
+		Cached(Object value, long elapsed, long cpuTime, long allocated) {
+			this.value = value;
+			this.elapsed = elapsed;
+			this.cpuTime = cpuTime;
+			this.allocated = allocated;
+		}
+	}
+}
@@ -0,0 +1,575 @@
+package testbed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact binary format for ResultSets and DomainSets, so that big
+ * suites don't have to be parsed from text on every run.
+ *
+ * <p>
+ *
+ * A file is a header (magic number, format version, and whether it holds
+ * ResultSets or DomainSets) followed by named entries. Each entry's body is
+ * prefixed with its length, so a reader can find any entry without decoding
+ * the ones before it. Every value is a one byte tag followed by its data.
+ *
+ * <p>
+ *
+ * ResultParser reads binary results files too, so a suite can switch to
+ * one just by converting its results file:
+ *
+ * <pre>
+ *     java testbed.ResultCodec Results.txt Results.bin
+ * </pre>
+ *
+ * @author michael
+ *
+ */
+public class ResultCodec {
+
+	// "TBRS"
+	static final int MAGIC = 0x54425253;
+	// the version of the format written (version 1 had no PerformanceBudgets,
+	// and can still be read)
+	static final short VERSION = 2;
+
+	// the kinds of files
+	static final byte RESULTS = 1, DOMAINS = 2;
+
+	// the tags of the kinds of values
+	private static final byte NULL = 0, TRUE = 1, FALSE = 2, INT = 3, STRING = 4, EXCEPTION = 5,
+	                          LIST_ITERATOR = 6, ITERATOR = 7, SPLITERATOR = 8,
+	                          LONG = 9, DOUBLE = 10, CHAR = 11;
+
+
+	// the constructors of the exception classes seen so far, by class name
+	private static final ConcurrentHashMap<String, Constructor<?>> EXCEPTIONS = new ConcurrentHashMap<String, Constructor<?>>();
+
+
+	private ResultCodec() {}
+
+
+	/**
+	 * convert a results file from the ResultParser markup to the binary format
+	 *
+	 * @param args  the text file to read and the binary file to write
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: java testbed.ResultCodec <results.txt> <results.bin>");
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+
+	/**
+	 * convert a results file from the ResultParser markup to the binary format
+	 *
+	 * @param textFile    the file to read
+	 * @param binaryFile  the file to write
+	 * @throws IOException  if the binary file can't be written
+	 */
+	public static void convert(String textFile, String binaryFile) throws IOException {
+		ResultParser parser = new ResultParser(textFile, true);
+		LinkedHashMap<String, ResultSet> cases = new LinkedHashMap<String, ResultSet>();
+		for (String caseName : parser.getCaseNames()) {
+			cases.put(caseName, parser.readResultSet(caseName));
+		}
+		writeResults(binaryFile, cases);
+	}
+
+
+	/**
+	 * write the given ResultSets to a binary results file
+	 *
+	 * @param filename  the file to write
+	 * @param cases     the ResultSet of each case, by case name
+	 * @throws IOException  if the file can't be written
+	 */
+	public static void writeResults(String filename, Map<String, ResultSet> cases) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			writeHeader(out, RESULTS, cases.size());
+			for (Map.Entry<String, ResultSet> e : cases.entrySet()) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				writeResultSet(new DataOutputStream(body), e.getValue());
+				writeEntry(out, e.getKey(), body);
+			}
+		}
+	}
+
+	/**
+	 * read all the ResultSets from a binary results file
+	 *
+	 * @param filename  the file to read
+	 * @return          the ResultSet of each case, by case name, in file order
+	 * @throws IOException  if the file can't be read or isn't a binary results file
+	 */
+	public static Map<String, ResultSet> readResults(String filename) throws IOException {
+		LinkedHashMap<String, ResultSet> ret = new LinkedHashMap<String, ResultSet>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			short version = readHeader(in, RESULTS);
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				in.readInt();
+				ret.put(name, readResultSet(in, version));
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * write the given DomainSets to a binary domains file
+	 *
+	 * @param filename  the file to write
+	 * @param cases     the DomainSet of each case, by case name
+	 * @throws IOException  if the file can't be written, or a domain holds
+	 *                      a value the format can't represent
+	 */
+	public static void writeDomains(String filename, Map<String, DomainSet> cases) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			writeHeader(out, DOMAINS, cases.size());
+			for (Map.Entry<String, DomainSet> e : cases.entrySet()) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				writeDomainSet(new DataOutputStream(body), e.getValue());
+				writeEntry(out, e.getKey(), body);
+			}
+		}
+	}
+
+	/**
+	 * read all the DomainSets from a binary domains file
+	 *
+	 * @param filename  the file to read
+	 * @return          the DomainSet of each case, by case name, in file order
+	 * @throws IOException  if the file can't be read or isn't a binary domains file
+	 */
+	public static Map<String, DomainSet> readDomains(String filename) throws IOException {
+		LinkedHashMap<String, DomainSet> ret = new LinkedHashMap<String, DomainSet>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			readHeader(in, DOMAINS);
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				in.readInt();
+				ret.put(name, readDomainSet(in));
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * write the given ResultSet
+	 *
+	 * @param out  where to write it
+	 * @param rs   the ResultSet to write
+	 * @throws IOException  if a Result holds a value the format can't represent
+	 */
+	public static void writeResultSet(DataOutput out, ResultSet rs) throws IOException {
+		out.writeInt(rs.getKeySet().size());
+		for (String methodName : rs.getKeySet()) {
+			Result[] results = rs.getResults(methodName);
+			out.writeUTF(methodName);
+			out.writeInt(results.length);
+			for (Result r : results) {
+				writeValue(out, r.getResult());
+			}
+			// (written the way the markup writes them)
+			out.writeInt(rs.getBudgets(methodName).size());
+			for (PerformanceBudget b : rs.getBudgets(methodName)) {
+				out.writeUTF(b.toString());
+			}
+		}
+	}
+
+	/**
+	 * read a ResultSet written in the current version of the format
+	 *
+	 * @param in  where to read it from
+	 * @return    the ResultSet read
+	 * @throws IOException  if the data is malformed
+	 */
+	public static ResultSet readResultSet(DataInput in) throws IOException {
+		return readResultSet(in, VERSION);
+	}
+
+	/**
+	 * read a ResultSet written in the given version of the format
+	 *
+	 * @param in       where to read it from
+	 * @param version  the version it was written in
+	 * @return         the ResultSet read
+	 * @throws IOException  if the data is malformed
+	 */
+	public static ResultSet readResultSet(DataInput in, int version) throws IOException {
+		ResultSet ret = new ResultSet();
+		int methods = in.readInt();
+		for (int m = 0; m < methods; m++) {
+			String methodName = in.readUTF();
+			Result[] results = new Result[in.readInt()];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = new Result(readValue(in));
+			}
+			ret.addResult(methodName, results);
+			if (version >= 2) {
+				int budgets = in.readInt();
+				for (int b = 0; b < budgets; b++) {
+					try {
+						ret.addBudget(methodName, PerformanceBudget.parse(in.readUTF()));
+					} catch (IllegalArgumentException e) {
+						throw new IOException(e.getMessage());
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+
+	/**
+	 * write the given DomainSet
+	 *
+	 * @param out  where to write it
+	 * @param ds   the DomainSet to write
+	 * @throws IOException  if a domain holds a value the format can't represent
+	 */
+	public static void writeDomainSet(DataOutput out, DomainSet ds) throws IOException {
+		out.writeInt(ds.getKeySet().size());
+		for (String methodName : ds.getKeySet()) {
+			Object[][] domain = ds.getDomain(methodName);
+			out.writeUTF(methodName);
+			out.writeInt(ds.getStrength(methodName));
+			out.writeInt(domain.length);
+			for (Object[] d : domain) {
+				out.writeInt(d.length);
+				for (Object o : d) {
+					writeValue(out, o);
+				}
+			}
+		}
+	}
+
+	/**
+	 * read a DomainSet
+	 *
+	 * @param in  where to read it from
+	 * @return    the DomainSet read
+	 * @throws IOException  if the data is malformed
+	 */
+	public static DomainSet readDomainSet(DataInput in) throws IOException {
+		DomainSet ret = new DomainSet();
+		int methods = in.readInt();
+		for (int m = 0; m < methods; m++) {
+			String methodName = in.readUTF();
+			int strength = in.readInt();
+			Object[][] domain = new Object[in.readInt()][];
+			for (int i = 0; i < domain.length; i++) {
+				domain[i] = new Object[in.readInt()];
+				for (int j = 0; j < domain[i].length; j++) {
+					domain[i][j] = readValue(in);
+				}
+			}
+			ret.addDomain(methodName, domain);
+			ret.setStrength(methodName, strength);
+		}
+		return ret;
+	}
+
+
+	/**
+	 * write a single value with its tag
+	 *
+	 * @param out  where to write it
+	 * @param o    the value to write
+	 * @throws IOException  if the format can't represent the value
+	 */
+	static void writeValue(DataOutput out, Object o) throws IOException {
+		if (o == null) {
+			out.writeByte(NULL);
+		}
+		else if (o instanceof Boolean) {
+			out.writeByte((Boolean) o ? TRUE : FALSE);
+		}
+		else if (o instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt((Integer) o);
+		}
+		else if (o instanceof String) {
+			byte[] bytes = ((String) o).getBytes(StandardCharsets.UTF_8);
+			out.writeByte(STRING);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		else if (o instanceof Exception) {
+			// only the class of an exception is ever compared
+			out.writeByte(EXCEPTION);
+			out.writeUTF(o.getClass().getName());
+		}
+		else if (o instanceof ListIterator) {
+			out.writeByte(LIST_ITERATOR);
+		}
+		else if (o instanceof Iterator) {
+			out.writeByte(ITERATOR);
+		}
+		else if (o instanceof Spliterator) {
+			out.writeByte(SPLITERATOR);
+		}
+		else if (o instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) o);
+		}
+		else if (o instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) o);
+		}
+		else if (o instanceof Character) {
+			out.writeByte(CHAR);
+			out.writeChar((Character) o);
+		}
+		else {
+			throw new IOException("can't encode a " + o.getClass().getName() + " (" + o + ")");
+		}
+	}
+
+	/**
+	 * determine whether writeValue can write the given value (and readValue
+	 * read it back)
+	 *
+	 * @param o  the value
+	 * @return   whether or not the format can represent it
+	 */
+	static boolean canEncode(Object o) {
+		if (o instanceof Exception) {
+			// (it's read back with its no-argument constructor)
+			try {
+				o.getClass().getConstructor();
+				return Modifier.isPublic(o.getClass().getModifiers());
+			} catch (NoSuchMethodException | SecurityException e) {
+				return false;
+			}
+		}
+		return o == null || o instanceof Boolean || o instanceof Integer || o instanceof String
+				|| o instanceof Iterator || o instanceof Spliterator
+				|| o instanceof Long || o instanceof Double || o instanceof Character;
+	}
+
+	/**
+	 * read a single value written by writeValue
+	 *
+	 * @param in  where to read it from
+	 * @return    the value read
+	 * @throws IOException  if the data is malformed
+	 */
+	@SuppressWarnings("rawtypes")
+	static Object readValue(DataInput in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case TRUE:
+			return true;
+		case FALSE:
+			return false;
+		case INT:
+			return in.readInt();
+		case STRING:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		case EXCEPTION:
+			return newException(in.readUTF());
+		case LIST_ITERATOR:
+			return new ArrayList().listIterator();
+		case ITERATOR:
+			return new ArrayList().iterator();
+		case SPLITERATOR:
+			return new ArrayList().spliterator();
+		case LONG:
+			return in.readLong();
+		case DOUBLE:
+			return in.readDouble();
+		case CHAR:
+			return in.readChar();
+		default:
+			throw new IOException("unknown value tag " + tag);
+		}
+	}
+
+
+	/**
+	 * determine whether the given file contents are in the binary format
+	 *
+	 * @param buf  the contents of a file
+	 * @return     whether or not it starts with the magic number
+	 */
+	static boolean isBinary(ByteBuffer buf) {
+		return buf.limit() >= 4 && buf.getInt(0) == MAGIC;
+	}
+
+	/**
+	 * get the version of the format of the given binary file contents
+	 *
+	 * @param buf  the contents of a binary file
+	 * @return     the version it was written in
+	 */
+	static short version(ByteBuffer buf) {
+		return buf.getShort(4);
+	}
+
+	/**
+	 * find the body of every entry in a binary file without decoding any of them
+	 *
+	 * @param buf   the contents of the file
+	 * @param kind  the kind of file expected
+	 * @return      the start and end of each entry's body, by name, in file order
+	 * @throws IOException  if the file is malformed or of the wrong kind
+	 */
+	static LinkedHashMap<String, int[]> index(ByteBuffer buf, byte kind) throws IOException {
+		LinkedHashMap<String, int[]> ret = new LinkedHashMap<String, int[]>();
+
+		ByteBuffer b = buf.duplicate();
+		b.position(0);
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(b));
+		readHeader(in, kind);
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			int length = in.readInt();
+			int start = b.position();
+			if (!ret.containsKey(name)) {
+				ret.put(name, new int[] {start, start + length});
+			}
+			b.position(start + length);
+		}
+		return ret;
+	}
+
+	/**
+	 * get a DataInput over the given range of the given buffer
+	 *
+	 * @param buf   the buffer
+	 * @param from  the start of the range
+	 * @param to    the end of the range
+	 * @return      a DataInput that reads the range
+	 */
+	static DataInput input(ByteBuffer buf, int from, int to) {
+		// one bulk copy out of the (mapped) buffer
+		byte[] bytes = new byte[to - from];
+		ByteBuffer b = buf.duplicate();
+		b.position(from);
+		b.get(bytes);
+		return new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+
+
+	/**
+	 * write a file header
+	 */
+	private static void writeHeader(DataOutputStream out, byte kind, int count) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeByte(kind);
+		out.writeInt(count);
+	}
+
+	/**
+	 * read and check a file header, up to the number of entries
+	 *
+	 * @return  the version of the format of the file
+	 */
+	private static short readHeader(DataInput in, byte kind) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("not a binary testbed file");
+		}
+		short version = in.readShort();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("unsupported format version " + version);
+		}
+		byte k = in.readByte();
+		if (k != kind) {
+			throw new IOException("expected a " + (kind == RESULTS ? "results" : "domains") + " file");
+		}
+		return version;
+	}
+
+	/**
+	 * write one length-prefixed entry
+	 */
+	private static void writeEntry(DataOutputStream out, String name, ByteArrayOutputStream body) throws IOException {
+		out.writeUTF(name);
+		out.writeInt(body.size());
+		body.writeTo(out);
+	}
+
+	/**
+	 * create an exception of the given class with its no-argument constructor
+	 */
+	private static Exception newException(String className) throws IOException {
+		try {
+			Constructor<?> c = EXCEPTIONS.get(className);
+			if (c == null) {
+				c = Class.forName(className).asSubclass(Exception.class).getDeclaredConstructor();
+				EXCEPTIONS.put(className, c);
+			}
+			return (Exception) c.newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IOException("can't create a " + className, e);
+		}
+	}
+
+
+	/**
+	 * An InputStream over a ByteBuffer (reads advance the buffer's position)
+	 *
+	 * @author michael
+	 *
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buf;
+
+		ByteBufferInputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!buf.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buf.remaining());
+			buf.get(b, off, n);
+			return n;
+		}
+	}
+}
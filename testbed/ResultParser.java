@@ -1,13 +1,17 @@
 package testbed;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.Stack;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * parser for a little markup language that represents the Results of functions
@@ -20,6 +24,18 @@ import java.util.regex.Pattern;
  * that prompt the user for method results and writes them to file. This would 
  * make result input far easier.
  * 
+ * <p>
+ * 
+ * The file is memory-mapped and tokenized in place (see ResultTokenizer), so
+ * only the cases that are actually read cost anything beyond the mapping.
+ * 
+ * <p>
+ * 
+ * Besides expected Results, a method's section can hold PerformanceBudgets,
+ * like {@literal <add(int, int)> 3 4 @p99=50us </add(int, int)>}.
+ * Results files converted to the binary format (see ResultCodec) are read
+ * the same way, minus the tokenizing.
+ * 
  * @author michael
  *
  */
@@ -28,9 +44,15 @@ public class ResultParser {
 	
 	// the file to parse from
 	File file;
-	// regular expression that matches characters surrounded by whitespace
-	// or quotes or angle brackets
-	private final Pattern reg = Pattern.compile("(<[^>]*>|\"[^\"]*\"|\\S+)");
+	// whether or not the whole file is read once and indexed by case name
+	private final boolean indexed;
+	// the contents of the file, mapped into memory (once it has been read)
+	private ByteBuffer contents;
+	// the start and end of the section of the file for each case name 
+	// (once the file has been indexed)
+	private HashMap<String, int[]> sections;
+	// whether or not the file is in the binary format
+	private boolean binary;
 	
 	
 	/**
@@ -39,7 +61,24 @@ public class ResultParser {
 	 * @param filename  the file to read from
 	 */
 	public ResultParser(String filename) {
+		this(filename, false);
+	}
+	
+	/**
+	 * creates a new ResultParser that will read from the given filename
+	 * 
+	 * <p>
+	 * 
+	 * An indexed parser reads the whole file the first time it is asked for
+	 * a case and remembers where every case is, so loading a lot of cases 
+	 * doesn't mean scanning the file from the top for each one.
+	 * 
+	 * @param filename  the file to read from
+	 * @param indexed   whether or not to index the file
+	 */
+	public ResultParser(String filename, boolean indexed) {
 		this.file = new File(filename);
+		this.indexed = indexed;
 	}
 	
 	
@@ -53,37 +92,111 @@ public class ResultParser {
 	public ResultSet readResultSet(String caseName) {
 		ResultSet ret = new ResultSet();
 		
-		String all = getResStr(caseName);
-		Matcher match = reg.matcher(all);
-				
-		String next = "";
-		while(match.find()) {
-			next = match.group();
-			
-			if (next.contains("<")) {
-				
-				String funcName = next.substring(next.indexOf("<") + 1, next.indexOf(">"));
-				String endName = "</" + funcName + ">";
+		ByteBuffer buf = contents();
+		if (binary) {
+			int[] entry = getIndexedSection(caseName);
+			try {
+				return ResultCodec.readResultSet(ResultCodec.input(buf, entry[0], entry[1]), ResultCodec.version(buf));
+			} catch (IOException e) {
+				throw new ResultParserException(caseName + " is corrupt: " + e.getMessage());
+			}
+		}
+		
+		int[] section = indexed ? getIndexedSection(caseName) : getSection(caseName);
+		ResultTokenizer tokens = new ResultTokenizer(contents(), section[0], section[1]);
+		
+		while (tokens.next()) {
+			if (tokens.kind() == ResultTokenizer.TAG) {
 				
-				match.find();
-				next = match.group();
+				String funcName = tokens.inner();
+				byte[] endName = funcName.getBytes(StandardCharsets.UTF_8);
 				
-				Stack<Result> methodResults = new Stack<Result>();
+				ArrayList<Result> methodResults = new ArrayList<Result>();
+				ArrayList<PerformanceBudget> budgets = new ArrayList<PerformanceBudget>();
 				
-				while (!next.equals(endName)) {
-					Result r = new Result(getObject(next));
-					methodResults.push(r);
-					match.find();
-					next = match.group();
+				while (true) {
+					if (!tokens.next()) {
+						throw new ResultParserException("<" + funcName + "> is never closed");
+					}
+					if (tokens.isEndTag(endName)) {
+						break;
+					}
+					if (tokens.kind() == ResultTokenizer.BARE && tokens.startsWith('@')) {
+						budgets.add(getBudget(tokens.text()));
+					}
+					else {
+						methodResults.add(new Result(getObject(tokens)));
+					}
 				}
 				
 				ret.addResult(funcName, methodResults.toArray(new Result[methodResults.size()]));
+				for (PerformanceBudget b : budgets) {
+					ret.addBudget(funcName, b);
+				}
 			}
 		}
 		return ret;
 	}
 	
 	
+	/**
+	 * get the names of all the cases in the file, in the order they appear
+	 * 
+	 * @return  the names of the cases
+	 */
+	public synchronized Set<String> getCaseNames() {
+		if (sections == null) {
+			sections = index();
+		}
+		return Collections.unmodifiableSet(sections.keySet());
+	}
+	
+	
+	/**
+	 * get the object represented by the current token, without making a 
+	 * String out of it unless it is one (or isn't recognized)
+	 * 
+	 * @param tokens  the tokenizer positioned at the token
+	 * @return        the Object represented by the token
+	 */
+	private Object getObject(ResultTokenizer tokens) {
+		if (tokens.kind() == ResultTokenizer.QUOTED) {
+			return tokens.inner();
+		}
+		if (tokens.kind() == ResultTokenizer.BARE) {
+			if (tokens.is("null")) {
+				return null;
+			}
+			if (tokens.is("true")) {
+				return true;
+			}
+			if (tokens.is("false")) {
+				return false;
+			}
+			Integer i = tokens.intValue();
+			if (i != null) {
+				return i;
+			}
+		}
+		return getObject(tokens.text());
+	}
+	
+	
+	/**
+	 * get the PerformanceBudget represented by the String
+	 * 
+	 * @param s  the String representing a budget (starting with '@')
+	 * @return   the budget
+	 */
+	private PerformanceBudget getBudget(String s) {
+		try {
+			return PerformanceBudget.parse(s);
+		} catch (IllegalArgumentException e) {
+			throw new ResultParserException(e.getMessage());
+		}
+	}
+	
+	
 	/**
 	 * get the object represented by the String
 	 * 
@@ -144,36 +257,179 @@ public class ResultParser {
 	
 	/**
 	 * Get the section of the file associated with the TestCase description
+	 * by searching the file from the top
 	 * 
 	 * @param caseName  the description of the TestCase to search for
-	 * @return          the section of the File associated with the given description
+	 * @return          the start and end of the section of the File associated 
+	 *                  with the given description
 	 */
-	private String getResStr(String caseName) {
-		StringBuilder ret = new StringBuilder();
+	private int[] getSection(String caseName) {
+		ByteBuffer buf = contents();
+		byte[] startName = ("<" + caseName + ">").getBytes(StandardCharsets.UTF_8);
+		byte[] endName = ("</" + caseName + ">").getBytes(StandardCharsets.UTF_8);
 		
-		try {
-			Scanner scan = new Scanner(this.file);
-			String startName = "<" + caseName + ">";
-			String endName = "</" + caseName + ">";
-						
-			while (!scan.nextLine().equals(startName)) {}
-			
-			String x = scan.nextLine();
-			while (!x.equals(endName)) {
-				ret.append(x + "\n");
-				x = scan.nextLine();
+		int sectionStart = -1;
+		int line = 0;
+		while (line < buf.limit()) {
+			int next = nextLine(buf, line);
+			if (sectionStart < 0) {
+				if (lineEquals(buf, line, next, startName)) {
+					sectionStart = next;
+				}
+			}
+			else if (lineEquals(buf, line, next, endName)) {
+				if (line == sectionStart) {
+					break;
+				}
+				return new int[] {sectionStart, line};
 			}
-			scan.close();
-		} catch (FileNotFoundException e) {
-			System.err.println("file:" + file.getName() + " not found");
-			e.printStackTrace();
+			line = next;
 		}
 		
-		if (ret.length() == 0) {
+		throw new NoSuchElementException(caseName + " not in file");
+	}
+	
+	
+	/**
+	 * Get the section of the file associated with the TestCase description
+	 * from the index, building the index first if need be
+	 * 
+	 * @param caseName  the description of the TestCase to search for
+	 * @return          the start and end of the section of the File associated 
+	 *                  with the given description
+	 */
+	private synchronized int[] getIndexedSection(String caseName) {
+		if (sections == null) {
+			sections = index();
+		}
+		
+		int[] ret = sections.get(caseName);
+		if (ret == null || ret[0] == ret[1]) {
 			throw new NoSuchElementException(caseName + " not in file");
 		}
+		return ret;
+	}
+	
+	
+	/**
+	 * go through the whole file once and find the sections of each case
+	 * 
+	 * <p>
+	 * 
+	 * A case starts with a line that's just its name in angle brackets and 
+	 * ends with the matching closing line. If a case shows up more than
+	 * once only the first counts, like with getSection.
+	 * 
+	 * @return  the start and end of the section of the file for each case name
+	 */
+	private HashMap<String, int[]> index() {
+		ByteBuffer buf = contents();
+		if (binary) {
+			try {
+				return ResultCodec.index(buf, ResultCodec.RESULTS);
+			} catch (IOException e) {
+				throw new ResultParserException("file:" + file.getName() + " is corrupt: " + e.getMessage());
+			}
+		}
+		
+		LinkedHashMap<String, int[]> ret = new LinkedHashMap<String, int[]>();
+		
+		String caseName = null;
+		byte[] endName = null;
+		int sectionStart = 0;
+		
+		int line = 0;
+		while (line < buf.limit()) {
+			int next = nextLine(buf, line);
+			int end = lineEnd(buf, line, next);
+			
+			if (caseName == null) {
+				if (end - line > 2 && buf.get(line) == '<' && buf.get(line + 1) != '/' && buf.get(end - 1) == '>') {
+					byte[] name = new byte[end - line - 2];
+					for (int i = 0; i < name.length; i++) {
+						name[i] = buf.get(line + 1 + i);
+					}
+					caseName = new String(name, StandardCharsets.UTF_8);
+					endName = ("</" + caseName + ">").getBytes(StandardCharsets.UTF_8);
+					sectionStart = next;
+				}
+			}
+			else if (lineEquals(buf, line, next, endName)) {
+				// (an empty case is as good as no case)
+				if (sectionStart != line && !ret.containsKey(caseName)) {
+					ret.put(caseName, new int[] {sectionStart, line});
+				}
+				caseName = null;
+			}
+			line = next;
+		}
 		
-		return ret.toString();
+		return ret;
+	}
+	
+	
+	/**
+	 * get the contents of the file, mapping it into memory the first time
+	 * 
+	 * @return  the contents of the file (empty if it couldn't be read)
+	 */
+	private synchronized ByteBuffer contents() {
+		if (contents == null) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				if (channel.size() > Integer.MAX_VALUE) {
+					throw new ResultParserException("file:" + file.getName() + " is too big to map");
+				}
+				contents = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				binary = ResultCodec.isBinary(contents);
+			} catch (IOException e) {
+				System.err.println("file:" + file.getName() + " not found");
+				e.printStackTrace();
+				contents = ByteBuffer.allocate(0);
+			}
+		}
+		return contents;
+	}
+	
+	
+	/**
+	 * get the start of the line after the line starting at the given position
+	 */
+	private static int nextLine(ByteBuffer buf, int line) {
+		int i = line;
+		while (i < buf.limit() && buf.get(i) != '\n') {
+			i++;
+		}
+		return Math.min(i + 1, buf.limit());
+	}
+	
+	/**
+	 * get the end of the text of a line (without its line break)
+	 */
+	private static int lineEnd(ByteBuffer buf, int line, int next) {
+		int end = next;
+		if (end > line && buf.get(end - 1) == '\n') {
+			end--;
+		}
+		if (end > line && buf.get(end - 1) == '\r') {
+			end--;
+		}
+		return end;
+	}
+	
+	/**
+	 * determine whether the text of a line is exactly the given bytes
+	 */
+	private static boolean lineEquals(ByteBuffer buf, int line, int next, byte[] text) {
+		int end = lineEnd(buf, line, next);
+		if (end - line != text.length) {
+			return false;
+		}
+		for (int i = 0; i < text.length; i++) {
+			if (buf.get(line + i) != text[i]) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	
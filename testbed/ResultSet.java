@@ -1,7 +1,10 @@
 package testbed;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
 
 
@@ -15,6 +18,8 @@ public class ResultSet {
 
 	// the expected results associated with each function
 	private HashMap<String, Result[]> results;
+	// the performance budgets associated with each function (if it has any)
+	private HashMap<String, List<PerformanceBudget>> budgets = new HashMap<String, List<PerformanceBudget>>();
 	
 	/**
 	 * create a new ResultSet with the given function name/expected Results
@@ -48,6 +53,31 @@ public class ResultSet {
 		results.put(methodName, result);
 	}
 	
+	/**
+	 * add a performance budget for the given method. A method with budgets
+	 * but no expected Results is still tested (with no Results to compare).
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @param budget      the budget the method has to meet
+	 */
+	public void addBudget(String methodName, PerformanceBudget budget) {
+		budgets.computeIfAbsent(methodName, k -> new ArrayList<PerformanceBudget>()).add(budget);
+		if (!results.containsKey(methodName)) {
+			results.put(methodName, new Result[0]);
+		}
+	}
+	
+	/**
+	 * get the performance budgets of the given method
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @return            its budgets (empty if it has none)
+	 */
+	public List<PerformanceBudget> getBudgets(String methodName) {
+		List<PerformanceBudget> b = budgets.get(methodName);
+		return b == null ? Collections.<PerformanceBudget>emptyList() : Collections.unmodifiableList(b);
+	}
+	
 	/**
 	 * get the results associated with the given method name
 	 * 
@@ -81,7 +111,8 @@ public class ResultSet {
 		StringBuilder s = new StringBuilder();
 		if (results.keySet().size() != 0) {
 			for (String key : results.keySet()) {
-				s.append(key + ": " + Arrays.deepToString(results.get(key)) + "\n");
+				s.append(key + ": " + Arrays.deepToString(results.get(key)) 
+						+ (budgets.containsKey(key) ? " " + budgets.get(key) : "") + "\n");
 			}
 		}
 		else {
@@ -0,0 +1,76 @@
+package testbed;
+
+/**
+ * Somewhere for a Tester to send the outcome of every comparison as soon
+ * as it's made, instead of collecting the whole report in memory.
+ * 
+ * <p>
+ * 
+ * A Tester calls a sink from one thread at a time (even when it runs 
+ * TestCases in parallel), in the order the TestCases were given.
+ * 
+ * @author michael
+ *
+ */
+public interface ResultSink {
+	
+	/**
+	 * a Result matched what was expected
+	 * 
+	 * @param description  the description of the TestCase
+	 * @param achieved     the Result achieved
+	 */
+	void pass(String description, Result achieved);
+	
+	/**
+	 * a Result didn't match what was expected
+	 * 
+	 * @param description  the description of the TestCase
+	 * @param achieved     the Result achieved
+	 * @param expected     the Result expected
+	 */
+	void fail(String description, Result achieved, Result expected);
+	
+	/**
+	 * a method met one of its PerformanceBudgets. By default this is 
+	 * reported as a pass of a Result describing the measurement.
+	 * 
+	 * @param description  the description of the TestCase
+	 * @param methodName   the (formatted) name of the method
+	 * @param budget       the budget
+	 * @param outcome      what was measured
+	 */
+	default void budgetPass(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		pass(description, new Result(methodName + " " + outcome.getMeasured()));
+	}
+	
+	/**
+	 * a method went over one of its PerformanceBudgets. By default this is 
+	 * reported as a failure, with Results describing the measurement and
+	 * the budget.
+	 * 
+	 * @param description  the description of the TestCase
+	 * @param methodName   the (formatted) name of the method
+	 * @param budget       the budget
+	 * @param outcome      what was measured
+	 */
+	default void budgetFail(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		fail(description, new Result(methodName + " " + outcome.getMeasured()), new Result(methodName + " " + budget));
+	}
+	
+	/**
+	 * every Result of a TestCase has been reported
+	 * 
+	 * @param description  the description of the TestCase
+	 */
+	void caseDone(String description);
+	
+	/**
+	 * a run is over
+	 * 
+	 * @param total     the number of tests so far
+	 * @param passes    the number of passed tests so far
+	 * @param failures  the number of failed tests so far
+	 */
+	void summary(int total, int passes, int failures);
+}
@@ -0,0 +1,229 @@
+package testbed;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a section of a results file into the tokens of the ResultParser
+ * markup, straight out of a (memory-mapped) ByteBuffer.
+ *
+ * <p>
+ *
+ * A token is a tag in angle brackets, a string in double quotes, or
+ * anything else up to the next whitespace. Only the position of the
+ * current token is kept; a String is only made for it if someone asks.
+ *
+ * @author michael
+ *
+ */
+class ResultTokenizer {
+
+	/** the kinds of tokens */
+	static final int TAG = 0, QUOTED = 1, BARE = 2;
+
+	// the bytes being tokenized
+	private final ByteBuffer buf;
+	// the end of the section being tokenized
+	private final int limit;
+	// where to look for the next token
+	private int pos;
+
+	// the start (inclusive) and end (exclusive) of the current token
+	private int start, end;
+	// the kind of the current token
+	private int kind;
+
+
+	/**
+	 * create a tokenizer for the given range of the given buffer
+	 *
+	 * @param buf    the bytes to tokenize
+	 * @param from   the start of the range (inclusive)
+	 * @param limit  the end of the range (exclusive)
+	 */
+	ResultTokenizer(ByteBuffer buf, int from, int limit) {
+		this.buf = buf;
+		this.pos = from;
+		this.limit = limit;
+	}
+
+
+	/**
+	 * move on to the next token
+	 *
+	 * @return  false if there are no tokens left
+	 */
+	boolean next() {
+		while (pos < limit && isSpace(buf.get(pos))) {
+			pos++;
+		}
+		if (pos >= limit) {
+			return false;
+		}
+
+		start = pos;
+		byte b = buf.get(pos);
+
+		// tags and quoted strings run to their closing character, whitespace and all
+		if (b == '<' || b == '"') {
+			int close = indexOf(b == '<' ? (byte) '>' : (byte) '"', pos + 1);
+			if (close >= 0) {
+				kind = b == '<' ? TAG : QUOTED;
+				end = close + 1;
+				pos = end;
+				return true;
+			}
+		}
+
+		kind = BARE;
+		while (pos < limit && !isSpace(buf.get(pos))) {
+			pos++;
+		}
+		end = pos;
+		return true;
+	}
+
+
+	/**
+	 * get the kind of the current token
+	 *
+	 * @return  TAG, QUOTED, or BARE
+	 */
+	int kind() {
+		return kind;
+	}
+
+	/**
+	 * get the current token as a String
+	 *
+	 * @return  the text of the current token
+	 */
+	String text() {
+		return decode(start, end);
+	}
+
+	/**
+	 * get the current token without its first and last characters (the
+	 * brackets of a tag or the quotes of a string)
+	 *
+	 * @return  the inside of the current token
+	 */
+	String inner() {
+		return decode(start + 1, end - 1);
+	}
+
+
+	/**
+	 * determine whether the current token is exactly the given (ASCII) text,
+	 * without making a String out of it
+	 *
+	 * @param s  the text to compare against
+	 * @return   whether or not the current token is s
+	 */
+	boolean is(String s) {
+		if (end - start != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (buf.get(start + i) != (byte) s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * determine whether the current token starts with the given (ASCII) character
+	 *
+	 * @param c  the character
+	 * @return   whether or not the current token starts with c
+	 */
+	boolean startsWith(char c) {
+		return end > start && buf.get(start) == (byte) c;
+	}
+
+	/**
+	 * determine whether the current token is the closing tag of the given name
+	 *
+	 * @param name  the bytes of the name inside the tag
+	 * @return      whether or not the current token is {@literal </name>}
+	 */
+	boolean isEndTag(byte[] name) {
+		if (kind != TAG || end - start != name.length + 3 || buf.get(start + 1) != '/') {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (buf.get(start + 2 + i) != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * get the current token as an int, if it is one that fits
+	 *
+	 * @return  the value of the token, or null if it's not a plain int
+	 */
+	Integer intValue() {
+		int i = start;
+		boolean negative = false;
+		if (buf.get(i) == '-' || buf.get(i) == '+') {
+			negative = buf.get(i) == '-';
+			i++;
+		}
+		if (i == end || end - i > 10) {
+			return null;
+		}
+
+		long value = 0;
+		for (; i < end; i++) {
+			byte b = buf.get(i);
+			if (b < '0' || b > '9') {
+				return null;
+			}
+			value = value * 10 + (b - '0');
+		}
+		if (negative) {
+			value = -value;
+		}
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return null;
+		}
+		return (int) value;
+	}
+
+
+	/**
+	 * find the next occurrence of the given byte from the given position on
+	 *
+	 * @return  its position, or -1 if it doesn't occur before the limit
+	 */
+	private int indexOf(byte b, int from) {
+		for (int i = from; i < limit; i++) {
+			if (buf.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * decode the given range of the buffer as UTF-8
+	 */
+	private String decode(int from, int to) {
+		byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buf.get(from + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * determine whether the given byte is whitespace (same as \s in a regex)
+	 */
+	static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+}
@@ -1,4 +1,5 @@
 package testbed;
+import java.util.HashMap;
 import java.util.function.Supplier;
 
 
@@ -18,6 +19,11 @@ public class TestCase {
 	private DomainSet params;
 	// The expected results of the functions of the object give the parameters
 	private ResultSet expected;
+	// The time (in ns) each invocation gets before it is considered an infinite loop
+	// (0 to use the Tester's)
+	private long timeout;
+	// The timeouts of individual methods, overriding the one above
+	private HashMap<String, Long> methodTimeouts;
 	
 	
 	/**
@@ -35,6 +41,48 @@ public class TestCase {
 		this.op = op;
 		this.params = params;
 		this.expected = expected;
+		this.methodTimeouts = new HashMap<String, Long>();
+	}
+	
+	
+	/**
+	 * set the time every invocation in this TestCase gets before it is
+	 * considered an infinite loop
+	 * 
+	 * @param nanos  the timeout in nanoseconds (0 to use the Tester's)
+	 */
+	public void setTimeout(long nanos) {
+		if (nanos < 0) {
+			throw new IllegalArgumentException("timeout can't be negative");
+		}
+		this.timeout = nanos;
+	}
+	
+	/**
+	 * set the time invocations of the given method get before they are 
+	 * considered infinite loops
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @param nanos       the timeout in nanoseconds
+	 */
+	public void setTimeout(String methodName, long nanos) {
+		if (nanos <= 0) {
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		this.methodTimeouts.put(methodName, nanos);
+	}
+	
+	/**
+	 * get the time invocations of the given method get before they are
+	 * considered infinite loops
+	 * 
+	 * @param methodName  the (formatted) name of the method
+	 * @return            the timeout in nanoseconds, or 0 if this TestCase
+	 *                    doesn't set one
+	 */
+	public long getTimeout(String methodName) {
+		Long t = this.methodTimeouts.get(methodName);
+		return t != null ? t : this.timeout;
 	}
 	
 	
@@ -0,0 +1,26 @@
+package testbed;
+
+/**
+ * A set of TestCases that can be made from scratch in another JVM.
+ *
+ * <p>
+ *
+ * The Suppliers and domains of a TestCase can't be sent to another process,
+ * so FORKED execution (see Tester.setSuite) starts each child JVM with the
+ * name of a TestSuite instead and has the child make the TestCases itself.
+ * An implementation needs a public constructor with no arguments, and has
+ * to make the same TestCases (by description, with the same domains) every
+ * time.
+ *
+ * @author michael
+ *
+ */
+public interface TestSuite {
+
+	/**
+	 * make the TestCases of this suite
+	 *
+	 * @return  the TestCases
+	 */
+	TestCase[] getTestCases();
+}
@@ -1,9 +1,19 @@
 package testbed;
-import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import dll.IUDoubleLinkedList;
@@ -24,11 +34,42 @@ public class Tester {
 	// whether or not passes should be included in returned Strings
 	private boolean showPasses = true;
 	// the number of passed tests
-	private int passes = 0;
+	private final AtomicInteger passes = new AtomicInteger();
 	// the number of failed tests
-	private int failures = 0;
+	private final AtomicInteger failures = new AtomicInteger();
 	// the number of total tests
-	private int total = 0;
+	private final AtomicInteger total = new AtomicInteger();
+	// the number of failed tests that were PerformanceBudgets that weren't met
+	private final AtomicInteger budgetViolations = new AtomicInteger();
+	// the number of TestCases testAll runs at once
+	private int parallelism = 1;
+	// how many TestCases per thread testAll can start ahead of the oldest one 
+	// it hasn't reported yet
+	private static final int LOOKAHEAD = 2;
+	// the most tuples handed to a Batch at once when BATCHED
+	private static final int BATCH_SIZE = 1024;
+	// the workers that invoke the methods being tested
+	private WorkerPool pool;
+	// how the methods being tested are run
+	private volatile ExecutionMode mode = ExecutionMode.POOLED;
+	// the time (in ns) an invocation gets before it is considered an infinite loop,
+	// unless its TestCase says otherwise
+	private long timeout = 10000000;
+	// whether or not to measure the CPU time and allocations of every invocation
+	private boolean measureResources;
+	// the latencies of every invocation that finished, by method name
+	private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+	// the suite FORKED execution makes its TestCases from (null until set)
+	private Class<? extends TestSuite> suite;
+	// the child JVMs of FORKED execution (started when first needed)
+	private ForkedExecutor forked;
+	// the Results of earlier runs (null to invoke everything)
+	private volatile ResultCache cache;
+	// whether or not to invoke only the expected methods, comparing as it goes
+	private boolean failFast;
+	// the failures (in fail-fast mode) after which a TestCase, or the whole run,
+	// is given up on (0 for no limit)
+	private int caseFailureLimit, failureLimit;
 	
 	
 	/**
@@ -40,6 +81,179 @@ public class Tester {
 	public Tester(Class<?> clazz, boolean showPasses) {
 		this.clazz = clazz;
 		this.showPasses = showPasses;
+		this.pool = new WorkerPool(1);
+	}
+	
+	
+	/**
+	 * set the way the methods being tested are run
+	 * 
+	 * @param mode  the ExecutionMode to use from now on
+	 */
+	public void setExecutionMode(ExecutionMode mode) {
+		if (!mode.isSupported()) {
+			throw new UnsupportedOperationException(mode + " execution is not supported by this JVM");
+		}
+		if (mode == ExecutionMode.FORKED && suite == null) {
+			throw new IllegalStateException("FORKED execution needs a TestSuite (see setSuite)");
+		}
+		this.mode = mode;
+	}
+	
+	/**
+	 * set the TestSuite the TestCases given to this Tester come from, which
+	 * FORKED execution needs, since the child JVMs make the TestCases for
+	 * themselves. TestCases are matched up by description, so only TestCases
+	 * from the suite can be tested in FORKED mode (any others run in this JVM).
+	 * 
+	 * @param suite  the class of the suite (with a public constructor that
+	 *               takes no arguments)
+	 */
+	public synchronized void setSuite(Class<? extends TestSuite> suite) {
+		this.suite = suite;
+		// (the old suite's children would otherwise live as long as this JVM)
+		if (forked != null) {
+			forked.close();
+		}
+		this.forked = null;
+	}
+	
+	/**
+	 * set the number of TestCases testAll runs at once. Reports still come
+	 * out in the order the TestCases were given.
+	 * 
+	 * <p>
+	 * 
+	 * Only use this if the tested class (and the Suppliers of the TestCases) 
+	 * don't share any state between instances.
+	 * 
+	 * @param parallelism  the number of TestCases to run at once (1 to run them in order)
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		// every TestCase running at once may be waiting on its own worker
+		pool.ensureWorkers(parallelism);
+		synchronized (this) {
+			if (forked != null) {
+				forked.ensureChildren(parallelism);
+			}
+		}
+	}
+	
+	/**
+	 * set the time an invocation gets before it is considered an infinite loop,
+	 * for TestCases that don't set their own
+	 * 
+	 * @param nanos  the timeout in nanoseconds
+	 */
+	public void setTimeout(long nanos) {
+		if (nanos <= 0) {
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		this.timeout = nanos;
+	}
+	
+	
+	/**
+	 * set whether or not to measure the CPU time and bytes allocated by every 
+	 * invocation (along with the time it took, which is always measured). 
+	 * They show up in the Results, where the JVM supports measuring them.
+	 * 
+	 * @param measureResources  whether or not to measure them
+	 */
+	public void setMeasureResources(boolean measureResources) {
+		this.measureResources = measureResources;
+	}
+	
+	
+	/**
+	 * set whether or not to test in fail-fast mode, where only the methods
+	 * a TestCase expects Results of are invoked, and each Result is compared
+	 * as soon as it's produced (see setFailureLimits). In BATCHED execution
+	 * Results are produced a Batch at a time, so a limit can be overshot by
+	 * the rest of the Batch it was hit in.
+	 * 
+	 * @param failFast  whether or not to fail fast
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+	
+	/**
+	 * set how many failures it takes, in fail-fast mode, to give up on the
+	 * rest of a TestCase or the rest of the run. Whatever is given up on is
+	 * neither invoked nor reported. (TestCases running at once may each 
+	 * report a failure before they see the run's limit was hit.)
+	 * 
+	 * @param perCase  the failures after which the rest of a TestCase is skipped
+	 *                 (0 for no limit)
+	 * @param total    the failures (over every TestCase so far) after which 
+	 *                 the rest of the run is skipped (0 for no limit)
+	 */
+	public void setFailureLimits(int perCase, int total) {
+		if (perCase < 0 || total < 0) {
+			throw new IllegalArgumentException("failure limits can't be negative");
+		}
+		this.caseFailureLimit = perCase;
+		this.failureLimit = total;
+	}
+	
+	
+	/**
+	 * set the cache to look Results up in before invoking anything. An
+	 * invocation whose Result is cached is skipped (and so doesn't count
+	 * towards the latencies), and the Results of the ones that aren't are
+	 * added to it (see ResultCache for which can be). Only invocations of
+	 * TestCases are cached, not ones from getAllResults.
+	 * 
+	 * @param cache  the cache to use (null to invoke everything)
+	 */
+	public void setResultCache(ResultCache cache) {
+		this.cache = cache;
+	}
+	
+	
+	/**
+	 * get the latencies of every invocation of every method so far 
+	 * (not counting the ones that timed out)
+	 * 
+	 * @return  a histogram of the latencies of each method, by method name
+	 */
+	public Map<String, LatencyHistogram> getLatencies() {
+		return Collections.unmodifiableMap(latencies);
+	}
+	
+	/**
+	 * get the latencies of every invocation of the given method so far
+	 * (not counting the ones that timed out)
+	 * 
+	 * @param methodName  the name of the method (see getMethodName)
+	 * @return            a histogram of its latencies (empty if it hasn't been invoked)
+	 */
+	public LatencyHistogram getLatency(String methodName) {
+		LatencyHistogram h = latencies.get(methodName);
+		return h == null ? new LatencyHistogram() : h;
+	}
+	
+	/**
+	 * forget the latencies recorded so far
+	 */
+	public void resetLatencies() {
+		latencies.clear();
+	}
+	
+	
+	/**
+	 * get the number of PerformanceBudgets that weren't met so far (these
+	 * are counted as failures too)
+	 * 
+	 * @return  the number of budget violations
+	 */
+	public int getBudgetViolations() {
+		return budgetViolations.get();
 	}
 	
 	
@@ -50,23 +264,110 @@ public class Tester {
 	 * @return        the String representation of the results of these TestCases
 	 */
 	public String testAll(TestCase[] tested) {
-		StringBuilder ret = new StringBuilder();
+		StringWriter out = new StringWriter();
 		
-		int i = 0;
-		for (TestCase t : tested) {
-			ret.append(test(t));
-			i++;
-			System.out.print(">" + new String(new char[i / 7]).replace("\0", "~") + "<\r");
+		testAll(tested, new TextSink(out) {
+			// the number of TestCases done
+			private int i = 0;
+			
+			@Override
+			public void caseDone(String description) {
+				super.caseDone(description);
+				i++;
+				System.out.print(">" + new String(new char[i / 7]).replace("\0", "~") + "<\r");
+			}
+		});
+		
+		return out.toString();
+	}
+	
+	
+	/**
+	 * tests all given TestCases, reporting every result to the given sink as soon
+	 * as it's known, followed by a final summary
+	 * 
+	 * @param tested  the testcases to be tested
+	 * @param sink    where to report the results
+	 */
+	public void testAll(TestCase[] tested, ResultSink sink) {
+		if (parallelism > 1) {
+			testParallel(tested, sink);
+		}
+		else {
+			for (TestCase t : tested) {
+				if (isGivenUp()) {
+					break;
+				}
+				test(t, sink);
+			}
 		}
 		
 		// add a final report
-		DecimalFormat df = new DecimalFormat("0.00");
-		ret.append("\n Total: " + total 
-				 + "\nPassed: " + passes 
-				 + " (" + df.format((double) passes / (double) total * 100.0)
-                 + "%)\nFailed: " + failures + "\n");
-				
-		return ret.toString();
+		sink.summary(total.get(), passes.get(), failures.get());
+	}
+	
+	
+	/**
+	 * tests all given TestCases on a pool of threads
+	 * 
+	 * <p>
+	 * 
+	 * Each TestCase reports to its own DeferredSink, which is replayed into the
+	 * real sink as soon as every TestCase before it has been. The TestCases are
+	 * started in order, and only LOOKAHEAD per thread can be started but not
+	 * yet replayed, so a slow TestCase holds back at most that many reports
+	 * (and everything their Results keep alive), however many TestCases come
+	 * after it.
+	 * 
+	 * @param tested  the testcases to be tested
+	 * @param sink    where to report the results, in the order of the TestCases
+	 */
+	private void testParallel(TestCase[] tested, ResultSink sink) {
+		DeferredSink[] finished = new DeferredSink[tested.length];
+		int[] next = new int[1];
+		// a permit for every TestCase that can be started before the oldest one
+		// not yet replayed is
+		Semaphore window = new Semaphore(LOOKAHEAD * parallelism);
+		
+		List<Future<Void>> started = new ArrayList<Future<Void>>();
+		ExecutorService scheduler = Executors.newFixedThreadPool(parallelism);
+		try {
+			for (int i = 0; i < tested.length; i++) {
+				final int c = i;
+				window.acquire();
+				started.add(scheduler.submit(() -> {
+					DeferredSink report = new DeferredSink();
+					try {
+						if (!isGivenUp()) {
+							test(tested[c], report);
+						}
+					} finally {
+						// (even a TestCase that blew up has to be replayed, or 
+						// every one after it waits forever)
+						synchronized (finished) {
+							finished[c] = report;
+							while (next[0] < finished.length && finished[next[0]] != null) {
+								finished[next[0]].replay(sink);
+								finished[next[0]] = null;
+								next[0]++;
+								window.release();
+							}
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<Void> f : started) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} catch (ExecutionException e) {
+			// a TestCase blew up the Tester itself (not the tested method)
+			throw new RuntimeException(e.getCause());
+		} finally {
+			scheduler.shutdown();
+		}
 	}
 	
 	
@@ -78,15 +379,13 @@ public class Tester {
 	 * @return        the String representation of the results of these TestCases
 	 */
 	public String testAll(TestCase[] tested, int c) {
-		StringBuilder b = new StringBuilder();
+		StringWriter out = new StringWriter();
+		TextSink sink = new TextSink(out);
 		
-		b.append(test(tested[c]));
-		b.append("\n Total: " + total 
-				+ "\nPassed: " + passes 
-				+ " (" + new DecimalFormat("0.00").format((double) passes / (double) total * 100.0)
-				+ "%)\nFailed: " + failures + "\n");
+		test(tested[c], sink);
+		sink.summary(total.get(), passes.get(), failures.get());
 		
-		return b.toString();
+		return out.toString();
 	}
 	
 	
@@ -97,68 +396,225 @@ public class Tester {
 	 * @return        The String representation of the results of the given TestCase
 	 */
 	public String test(TestCase tested) {
-		StringBuilder ret = new StringBuilder();
-		
-		String description = tested.getDescription();
-		Supplier<?> op = tested.getOp();
+		StringWriter out = new StringWriter();
+		test(tested, new TextSink(out));
+		return out.toString();
+	}
+	
+	
+	/**
+	 * test the given TestCase, reporting every result to the given sink
+	 * 
+	 * <p>
+	 * 
+	 * Every Result is compared as soon as it's produced and then let go of
+	 * (unless the method has budgets, which are checked over all of its 
+	 * Results), so testing a method over millions of combinations doesn't
+	 * take millions of Results' worth of memory. Without fail-fast, every 
+	 * other public method is then invoked too, and its Results thrown away.
+	 * 
+	 * @param tested  The TestCase to be tested
+	 * @param sink    where to report the results
+	 */
+	public void test(TestCase tested, ResultSink sink) {
 		DomainSet params = tested.getParams();
 		ResultSet expectedResults = tested.getExpected();
-		
-		// get the results of the TestCase
-		ResultSet achievedResults = getAllResults(op, params);
+		MethodCatalog catalog = MethodCatalog.of(this.clazz);
+		int caseFailures = 0;
 		
 		// for every expected method
 		for (String methodName : expectedResults.getKeySet()) {
-			Result[] r = achievedResults.getResults(methodName);
-			Result[] e = expectedResults.getResults(methodName);
-			
-			// for each achieved result and expected result in the method
-			for (int i = 0; i < e.length; i++) {
-				
-				Result achieved = r[i];
-				Result expected = e[i];
-				
-				// if the results are equal, format and append a pass (if passes are being shown)
-				if (achieved.equals(expected)) {
-					if (showPasses) {
-						ret.append(description + " | PASS: " + r[i] + "\n");
-					}
-					passes++;
+			if (isGivenUp(caseFailures)) {
+				break;
+			}
+			MethodCatalog.Entry m = catalog.get(methodName);
+			if (m == null) {
+				throw new IllegalArgumentException(clazz.getName() + " has no public method " + methodName);
+			}
+			caseFailures += testMethod(tested, m, caseFailures, sink);
+		}
+		
+		if (!failFast) {
+			for (MethodCatalog.Entry m : catalog.getEntries()) {
+				String funcName = m.getName();
+				if (!expectedResults.getKeySet().contains(funcName)) {
+					invoke(tested.getOp(), m, timeout(tested, funcName), 
+							Tuples.of(m, params.getStrength(funcName), params.getDomain(funcName)), tested, r -> true);
 				}
-				// if the results are not equal, format and append a fail
-				else {
-					Object achObject = achieved.getResult();
-					
-					ret.append(description + " | **** FAIL:     " + r[i] + "\n");
-					ret.append(description + " |      Expected: " + e[i] + "\n");
-					
-					// print the stack trace
-					if (achObject instanceof Exception && !(achObject instanceof InfiniteLoopException)) {
-						// this is really the only way to get a stacktrace as a String /ugly
-						StringWriter sWriter = new StringWriter();
-						PrintWriter pWriter = new PrintWriter(sWriter);
-						((Throwable) achObject).printStackTrace(pWriter);
-						String stackTrace = sWriter.toString();
-						
-						// Cut off irrelevant parts of the call stack
-						if (stackTrace.contains("at sun.")) {
-							stackTrace = stackTrace.substring(0, stackTrace.indexOf("at sun."));
-						}
-						if (stackTrace.contains("at testbed.Tester")) {
-							stackTrace = stackTrace.substring(0, stackTrace.indexOf("at testbed.Tester"));
-						}
-						if (stackTrace.contains("at testbed.Executor")) {
-							stackTrace = stackTrace.substring(0, stackTrace.indexOf("at testbed.Executor"));
-						}
-						
-						ret.append("   " + stackTrace + "\n");
-					}
-					failures++;
+			}
+		}
+		sink.caseDone(tested.getDescription());
+	}
+	
+	
+	/**
+	 * test one expected method of the given TestCase: compare each Result to 
+	 * the expected one as it's produced, then check the method's budgets
+	 * 
+	 * @param tested        The TestCase being tested
+	 * @param method        the (cataloged) method to test
+	 * @param caseFailures  the failures of the TestCase so far
+	 * @param sink          where to report the results
+	 * @return              the number of failures
+	 */
+	private int testMethod(TestCase tested, MethodCatalog.Entry method, int caseFailures, ResultSink sink) {
+		String description = tested.getDescription();
+		String methodName = method.getName();
+		DomainSet params = tested.getParams();
+		ResultSet expectedResults = tested.getExpected();
+		Result[] e = expectedResults.getResults(methodName);
+		boolean budgeted = !expectedResults.getBudgets(methodName).isEmpty();
+		
+		// in fail-fast mode, a method with nothing to compare (or check) isn't invoked at all
+		if (failFast && e.length == 0 && !budgeted) {
+			return 0;
+		}
+		
+		Comparison c = new Comparison(description, e, caseFailures, budgeted, sink);
+		invoke(tested.getOp(), method, timeout(tested, methodName), 
+				Tuples.of(method, params.getStrength(methodName), params.getDomain(methodName)), tested, c);
+		
+		// (a method given up on partway through hasn't got all its latencies)
+		if (c.stopped) {
+			return c.failures;
+		}
+		if (c.count < e.length) {
+			throw new IllegalArgumentException(description + " expects " + e.length + " Results of " + methodName 
+					+ " but its domains only make " + c.count);
+		}
+		if (budgeted) {
+			return c.failures + checkBudgets(description, methodName, expectedResults, c.kept.toArray(new Result[0]), sink);
+		}
+		return c.failures;
+	}
+	
+	
+	/**
+	 * Compares the Results of a method to the expected ones as they're produced
+	 * 
+	 * @author michael
+	 *
+	 */
+	private class Comparison implements Predicate<Result> {
+		
+		private final String description;
+		// the Results expected, in order
+		private final Result[] expected;
+		// the failures of the TestCase before this method
+		private final int caseFailures;
+		private final ResultSink sink;
+		// every Result so far, if the method has budgets to check them against (or else null)
+		final ArrayList<Result> kept;
+		// the number of Results so far, and how many of them failed
+		int count, failures;
+		// whether or not the failure limits were hit
+		boolean stopped;
+		
+		
+		Comparison(String description, Result[] expected, int caseFailures, boolean budgeted, ResultSink sink) {
+			this.description = description;
+			this.expected = expected;
+			this.caseFailures = caseFailures;
+			this.sink = sink;
+			this.kept = budgeted ? new ArrayList<Result>() : null;
+		}
+		
+		
+		/**
+		 * compare the next Result
+		 * 
+		 * @return  whether or not to go on invoking the method
+		 */
+		@Override
+		public boolean test(Result achieved) {
+			if (kept != null) {
+				kept.add(achieved);
+			}
+			if (count < expected.length && !compare(description, achieved, expected[count], sink)) {
+				failures++;
+				stopped = isGivenUp(caseFailures + failures);
+			}
+			count++;
+			// in fail-fast mode, nothing past the expected Results is needed (but budgets need them all)
+			return !stopped && (!failFast || kept != null || count < expected.length);
+		}
+	}
+	
+	
+	/**
+	 * determine whether the whole run has hit its failure limit
+	 */
+	private boolean isGivenUp() {
+		return failFast && failureLimit > 0 && failures.get() >= failureLimit;
+	}
+	
+	/**
+	 * determine whether a TestCase with the given number of failures, or the
+	 * whole run, has hit its failure limit
+	 */
+	private boolean isGivenUp(int caseFailures) {
+		return (failFast && caseFailureLimit > 0 && caseFailures >= caseFailureLimit) || isGivenUp();
+	}
+	
+	
+	/**
+	 * compare an achieved Result to the expected one and report it
+	 * 
+	 * @param description  the description of the TestCase
+	 * @param achieved     the Result achieved
+	 * @param expected     the Result expected
+	 * @param sink         where to report it
+	 * @return             whether or not they were equal
+	 */
+	private boolean compare(String description, Result achieved, Result expected, ResultSink sink) {
+		boolean passed = achieved.equals(expected);
+		
+		// if the results are equal, report a pass (if passes are being shown)
+		if (passed) {
+			if (showPasses) {
+				sink.pass(description, achieved);
+			}
+			passes.incrementAndGet();
+		}
+		// if the results are not equal, report a fail
+		else {
+			sink.fail(description, achieved, expected);
+			failures.incrementAndGet();
+		}
+		total.incrementAndGet();
+		return passed;
+	}
+	
+	/**
+	 * check a method's budgets against the latencies of all of its invocations
+	 * and report them
+	 * 
+	 * @param description      the description of the TestCase
+	 * @param methodName       the name of the method
+	 * @param expectedResults  the Results (and budgets) the TestCase expects
+	 * @param r                the Results achieved by the method
+	 * @param sink             where to report them
+	 * @return                 the number of budgets that weren't met
+	 */
+	private int checkBudgets(String description, String methodName, ResultSet expectedResults, Result[] r, ResultSink sink) {
+		int violations = 0;
+		for (PerformanceBudget budget : expectedResults.getBudgets(methodName)) {
+			PerformanceBudget.Outcome outcome = budget.check(r == null ? new Result[0] : r);
+			if (outcome.isMet()) {
+				if (showPasses) {
+					sink.budgetPass(description, methodName, budget, outcome);
 				}
-				total++;
+				passes.incrementAndGet();
 			}
+			else {
+				sink.budgetFail(description, methodName, budget, outcome);
+				failures.incrementAndGet();
+				budgetViolations.incrementAndGet();
+				violations++;
+			}
+			total.incrementAndGet();
 		}
-		return ret.toString();
+		return violations;
 	}
 	
 	
@@ -172,239 +628,416 @@ public class Tester {
 	public ResultSet getAllResults(Supplier<?> op, DomainSet params) {
 		ResultSet results = new ResultSet();
 		
-		Method[] methods = this.clazz.getDeclaredMethods();
-		for (Method m : methods) {
-			// If the method is public and is not implicitly generated by the compiler
-			if (Modifier.isPublic(m.getModifiers()) && !m.isSynthetic()) {
-				String funcName = getMethodName(m);
-								
-				results.addResult(funcName, getResults(op, m, params.getDomain(funcName)));
-			}
+		// every public method that isn't implicitly generated by the compiler
+		for (MethodCatalog.Entry m : MethodCatalog.of(this.clazz).getEntries()) {
+			String funcName = m.getName();
+			ArrayList<Result> r = new ArrayList<Result>();
+			invoke(op, m, this.timeout, Tuples.of(m, params.getStrength(funcName), params.getDomain(funcName)), null, r::add);
+			results.addResult(funcName, r.toArray(new Result[0]));
 		}
 		return results;
 	}
 	
 	
 	/**
-	 * get the results of invoking the given method with the given object over the given parameter domains
+	 * get the time each invocation of the given method gets before it is
+	 * considered an infinite loop
 	 * 
-	 * @param obj     the Supplier which provides the Object that will call the method
-	 * @param method  the method to call
-	 * @param params  the set of domains of the parameters of the methods
-	 * @return        an array of the results achieved by the method
+	 * @param tested      the TestCase the method is being tested by (may be null)
+	 * @param methodName  the name of the method
+	 * @return            the TestCase's timeout for it, if it has one, or else this Tester's
 	 */
-	private Result[] getResults(Supplier<?> obj, Method method, Object[]... params) {
-		Result[] results;
+	private long timeout(TestCase tested, String methodName) {
+		return (tested != null && tested.getTimeout(methodName) > 0)
+				? tested.getTimeout(methodName)
+				: this.timeout;
+	}
+	
+	
+	/**
+	 * invoke the given method with each of the given tuples in turn, the way
+	 * the ExecutionMode says to, handing each Result on as soon as it's 
+	 * produced (or taken from the ResultCache, if there is one)
+	 * 
+	 * @param op       the Supplier which provides the Objects that will call the method
+	 * @param method   the (cataloged) method to call
+	 * @param timeout  the time (in ns) each invocation gets before it is considered an infinite loop
+	 * @param tuples   the parameters of each invocation
+	 * @param tested   the TestCase the method is being tested by (may be null)
+	 * @param out      takes each Result, in the order of the tuples, and returns false to stop
+	 * @return         whether or not every tuple was invoked
+	 */
+	private boolean invoke(Supplier<?> op, MethodCatalog.Entry method, long timeout, Tuples tuples, TestCase tested, 
+			Predicate<Result> out) {
+		// (only TestCases' invocations are cached)
+		ResultCache cache = (tested == null) ? null : this.cache;
+		if (mode == ExecutionMode.FORKED && tested != null) {
+			return invokeForked(tested, method, timeout, tuples, cache, out);
+		}
 		
-		// if there are params to use, use them
-		if (params != null && params[0] != null) {
-			results = new Result[numCombos(params)];
-			
-			// The params passed to this function are the domains of each parameter.
-			// It is intended that all possible combinations of these domains are tested.
-			
-			// get all combinations of the parameter sets
-			Object[][] paramCombos = allCombinations(params);
-			
-			int i = 0;
-			for (Object[] p : paramCombos) {
-				results[i] = getResult(obj, method, p);
-				i++;
+		// a Batch's worth of tuples at a time when BATCHED, or else one
+		int size = (mode == ExecutionMode.BATCHED) ? BATCH_SIZE : 1;
+		Iterator<Object[]> it = tuples.iterator();
+		while (it.hasNext()) {
+			Object[][] chunk = Tuples.take(it, size);
+			Result[] results = (cache == null) 
+					? invoke(op, method, timeout, chunk) 
+					: invokeCached(op, method, timeout, chunk, tested, cache);
+			for (Result r : results) {
+				if (!out.test(r)) {
+					return false;
+				}
 			}
-			
 		}
-		// else call the function with no parameters
-		else {
-			results = new Result[1];
-			results[0] = getResult(obj, method, (Object[]) null);
+		return true;
+	}
+	
+	/**
+	 * get the results of invoking the given method with each of the given tuples,
+	 * taking whatever it can from the given ResultCache
+	 * 
+	 * @param op       the Supplier which provides the Objects that will call the method
+	 * @param method   the (cataloged) method to call
+	 * @param timeout  the time (in ns) each invocation gets before it is considered an infinite loop
+	 * @param tuples   the parameters of each invocation
+	 * @param tested   the TestCase the method is being tested by
+	 * @param cache    the cache to use
+	 * @return         an array of the results achieved by the method
+	 */
+	private Result[] invokeCached(Supplier<?> op, MethodCatalog.Entry method, long timeout, Object[][] tuples, 
+			TestCase tested, ResultCache cache) {
+		String[] keys = cache.keys(clazz, tested.getDescription(), method, tuples);
+		Result[] results = new Result[tuples.length];
+		int[] missing = new int[tuples.length];
+		int misses = 0;
+		for (int i = 0; i < tuples.length; i++) {
+			if (keys[i] != null) {
+				results[i] = cache.get(keys[i], method, tuples[i]);
+			}
+			if (results[i] == null) {
+				missing[misses] = i;
+				misses++;
+			}
+		}
+		if (misses == 0) {
+			return results;
+		}
+		
+		Object[][] rest = new Object[misses][];
+		for (int j = 0; j < misses; j++) {
+			rest[j] = tuples[missing[j]];
+		}
+		Result[] invoked = invoke(op, method, timeout, rest);
+		for (int j = 0; j < misses; j++) {
+			int i = missing[j];
+			results[i] = invoked[j];
+			if (keys[i] != null) {
+				cache.put(keys[i], results[i]);
+			}
 		}
-				
 		return results;
 	}
 	
+	/**
+	 * get the results of invoking the given method with each of the given tuples,
+	 * on this JVM's workers
+	 * 
+	 * @param op       the Supplier which provides the Objects that will call the method
+	 * @param method   the (cataloged) method to call
+	 * @param timeout  the time (in ns) each invocation gets before it is considered an infinite loop
+	 * @param tuples   the parameters of each invocation
+	 * @return         an array of the results achieved by the method
+	 */
+	private Result[] invoke(Supplier<?> op, MethodCatalog.Entry method, long timeout, Object[][] tuples) {
+		if (mode == ExecutionMode.BATCHED) {
+			return getBatchedResults(op, method, timeout, tuples);
+		}
+		
+		Result[] results = new Result[tuples.length];
+		for (int i = 0; i < tuples.length; i++) {
+			results[i] = getResult(op, method, timeout, tuples[i]);
+		}
+		return results;
+	}
 	
 	
 	/**
-	 * Get the Result of invoking the given method on the given Object with the given parameters
+	 * invoke the given method with each of the given tuples in a child JVM 
+	 * (see ForkedExecutor), handing each Result on as soon as it comes back
 	 * 
-	 * @param obj     The supplier to give the Object to be tested
-	 * @param method  The method to be called
-	 * @param params  The parameters with which to call the method
-	 * @return        The result achieved
+	 * @param tested   the TestCase the method is being tested by
+	 * @param method   the (cataloged) method to call
+	 * @param timeout  the time (in ns) each invocation gets before it is considered an infinite loop
+	 * @param tuples   the parameters of each invocation
+	 * @param cache    the ResultCache to use (null for none)
+	 * @param out      takes each Result, in the order of the tuples, and returns false to stop
+	 * @return         whether or not every tuple was invoked
 	 */
-	@SuppressWarnings("deprecation")
-	private Result getResult(Supplier<?> obj, Method method, Object... params) {
-		if (method == null) {
-			throw new IllegalArgumentException("method can't be null");
+	private boolean invokeForked(TestCase tested, MethodCatalog.Entry method, long timeout, Tuples tuples, 
+			ResultCache cache, Predicate<Result> out) {
+		String description = tested.getDescription();
+		if (cache != null) {
+			// a child works through the whole list by index, so it's only spared
+			// the list if every Result is cached
+			if (isCached(description, method, tuples, cache)) {
+				Iterator<Object[]> it = tuples.iterator();
+				while (it.hasNext()) {
+					Object[][] chunk = Tuples.take(it, BATCH_SIZE);
+					String[] keys = cache.keys(clazz, description, method, chunk);
+					for (int i = 0; i < chunk.length; i++) {
+						if (!out.test(cache.get(keys[i], method, chunk[i]))) {
+							return false;
+						}
+					}
+				}
+				return true;
+			}
+			
+			Predicate<Result> uncached = out;
+			out = r -> {
+				String key = cache.key(clazz, description, method, r.getParams());
+				if (key != null) {
+					cache.put(key, r);
+				}
+				return uncached.test(r);
+			};
 		}
-		if (method.getParameterCount() != 0 && params == null) {
-			throw new IllegalArgumentException(method.getName() + " was called with the wrong number of parameters");
+		
+		Predicate<Result> recorded = out;
+		return forked().getResults(tested, method, timeout, tuples, measureResources, r -> {
+			record(method, r);
+			return recorded.test(r);
+		});
+	}
+	
+	/**
+	 * determine whether every invocation of the given method with the given tuples has a cached Result
+	 */
+	private boolean isCached(String description, MethodCatalog.Entry method, Tuples tuples, ResultCache cache) {
+		Iterator<Object[]> it = tuples.iterator();
+		while (it.hasNext()) {
+			for (String key : cache.keys(clazz, description, method, Tuples.take(it, BATCH_SIZE))) {
+				if (key == null || !cache.contains(key)) {
+					return false;
+				}
+			}
 		}
-		if (params != null && (method.getParameterCount() != params.length)) {
-			throw new IllegalArgumentException(method.getName() + " was called with the wrong number of parameters");
+		return true;
+	}
+	
+	/**
+	 * get the child JVMs of FORKED execution, starting them if need be
+	 */
+	private synchronized ForkedExecutor forked() {
+		if (forked == null) {
+			forked = new ForkedExecutor(suite, clazz, parallelism);
 		}
-				
-		// Create a worker thread to test the object
-		Executor executor = new Executor(obj, method, params);
-		executor.start();
-		
-		// If the object isn't done in a few ms then we've run into an infinite loop. (check every ~ms for speed)
-		int i = 0;
-		while (!executor.isFinished() && i < 10) {
+		return forked;
+	}
+	
+	
+	/**
+	 * get the results of invoking the given method with each of the given tuples,
+	 * all on one pooled worker (see Batch)
+	 * 
+	 * @param obj      the Supplier which provides the Objects that will call the method
+	 * @param method   the (cataloged) method to call
+	 * @param timeout  the time (in ns) each invocation gets before it is considered an infinite loop
+	 * @param tuples   the parameters of each invocation
+	 * @return         an array of the results achieved by the method
+	 */
+	private Result[] getBatchedResults(Supplier<?> obj, MethodCatalog.Entry method, long timeout, Object[][] tuples) {
+		Result[] results = new Result[tuples.length];
+		int next = 0;
+		while (next < tuples.length) {
+			Batch batch = new Batch(obj, method, tuples, next, results, measureResources);
+			pool.submit(batch);
+			
+			int stuck;
 			try {
-				Thread.sleep(1);
-				i++;
+				stuck = batch.await(timeout);
 			} catch (InterruptedException e) {
 				e.printStackTrace();
+				stuck = -1;
+			}
+			if (stuck < 0) {
+				break;
+			}
+			
+			// kill the infinite loop (the pool replaces the worker that was running it)
+			pool.abandon(batch);
+			next = batch.firstUnfinished();
+			// (it may have finished the stuck one just before it was abandoned)
+			if (next == stuck) {
+				results[next] = new Result(method.getMethod(), obj, tuples[next], new InfiniteLoopException());
+				next++;
 			}
 		}
-		if (executor.isFinished()) {
-			return executor.result();
-		}
-		else {
-			// kill the infinite loop. However deprecated, this is the only support in Java
-			// to kill an infinite loop in another thread. The thread isn't using any 
-			// meaningful resources so it should be fine.
-			executor.stop();
-			Result r = new Result(method, obj, params, new InfiniteLoopException());
-			return r;
+		
+		for (Result r : results) {
+			record(method, r);
 		}
+		return results;
 	}
 	
+
 	/**
-	 * Helper method to get the name of the method qualified with its parameter types
-	 * (to support overloading)
-	 * 
-	 * <p>
-	 * 
-	 * method names are formatted according to '$name($type1, $type2, ...)
-	 * example:
-	 *     add(int, int)
-	 * Generic arguments are Objects under the hood:
-	 *     add(T element) becomes add(Object)
-	 *     
-	 * This was a horrible design choice. Truly just the worst.
+	 * Get the Result of invoking the given method on the given Object with the given parameters
 	 * 
-	 * @param f  the method whose name is to be gotten
-	 * @return   the formatted name of the method
+	 * @param obj      The supplier to give the Object to be tested
+	 * @param method   The (cataloged) method to be called
+	 * @param timeout  The time (in ns) the invocation gets before it is considered an infinite loop
+	 * @param params   The parameters with which to call the method
+	 * @return         The result achieved
 	 */
-	static String getMethodName(Method f) {
-		StringBuilder ret = new StringBuilder();
+	private Result getResult(Supplier<?> obj, MethodCatalog.Entry method, long timeout, Object... params) {
+		if (method == null) {
+			throw new IllegalArgumentException("method can't be null");
+		}
+		if (method.getParameterCount() != 0 && params == null) {
+			throw new IllegalArgumentException(method.getMethod().getName() + " was called with the wrong number of parameters");
+		}
+		if (params != null && (method.getParameterCount() != params.length)) {
+			throw new IllegalArgumentException(method.getMethod().getName() + " was called with the wrong number of parameters");
+		}
+				
+		Executor executor = new Executor(obj, method, params);
+		executor.setMeasureResources(measureResources);
 		
-		ret.append(f.getName());
-		if (f.getParameterCount() == 0) {
-			ret.append("()");
+		boolean finished;
+		if (mode == ExecutionMode.VIRTUAL) {
+			finished = runVirtual(executor, timeout);
 		}
 		else {
-			ret.append("(");
-			for (Class<?> p : f.getParameterTypes()) {
-				ret.append(p.toString().substring(p.toString().lastIndexOf('.') + 1) + ", ");
-			}
-			ret = new StringBuilder(ret.substring(0, ret.length() - 2));
-			ret.append(")");
+			finished = runPooled(executor, timeout);
 		}
 		
-		return ret.toString();
+		if (finished) {
+			Result r = executor.result();
+			record(method, r);
+			return r;
+		}
+		else {
+			Result r = new Result(method.getMethod(), obj, params, new InfiniteLoopException());
+			return r;
+		}
 	}
 	
 	
 	/**
-	 * helper method to get all combinations of the set of domains
+	 * record the latency of an invocation of the given method, if it finished
 	 * 
-	 * @param doms  the set of domains
-	 * @return      all combinations of the given domains
+	 * @param method  the (cataloged) method that was called
+	 * @param r       the Result of the call
 	 */
-	private static Object[][] allCombinations(Object[]... doms) {
-		if (doms == null) { return null; }
-		Object[][] firstCombos = new Object[doms[0].length][1];
-		for (int i = 0; i < doms[0].length; i++) {
-			firstCombos[i][0] = doms[0][i];
+	private void record(MethodCatalog.Entry method, Result r) {
+		if (r.getElapsedNanos() >= 0) {
+			latencies.computeIfAbsent(method.getName(), k -> new LatencyHistogram()).record(r.getElapsedNanos());
 		}
-		return _allCombinations(firstCombos, tail(doms));
 	}
 	
+	
 	/**
-	 * helper for allCombinations that does the recursive work
+	 * Run the given Executor on a pooled worker, killing it if it runs too long
 	 * 
-	 * @param cur        the current set of combinations
-	 * @param remaining  the remaining domains to be accounted for
-	 * @return           a new set of combinations that accounts for 
-	 *                   the first domain in the remaining domains
+	 * @param executor  the Executor to run
+	 * @param timeout   the time (in ns) to wait for it
+	 * @return          whether or not the Executor finished in time
 	 */
-	private static Object[][] _allCombinations(Object[][] cur, Object[][] remaining) {
-		// base case
-		if (remaining.length <= 0) { 
-			return cur; 
+	private boolean runPooled(Executor executor, long timeout) {
+		// Hand the invocation to a worker to test the object
+		pool.submit(executor);
+		
+		// If the object isn't done in time then we've run into an infinite loop.
+		if (await(executor, timeout)) {
+			return true;
 		}
 		else {
-			// the next domain to be processed
-			Object[] next = remaining[0];
-			// the new set of combinations to return
-			Object[][] newCur = new Object[cur.length * next.length][cur[0].length + 1];
-			
-			// for every combination in the current set and every element in the next domain to be processed
-			int i = 0;
-			for (Object[] l : cur) {
-				for (Object o : next) {
-					// add to the new set of combinations the concatenation of the combination and the new element
-					newCur[i] = concat(l, new Object[]{o});
-					i++;
-				}
-			}
-			// call the method again with the new set of combinations and the rest of the domains to be processed
-			return _allCombinations(newCur, tail(remaining));
+			// kill the infinite loop (the pool replaces the worker that was running it)
+			pool.abandon(executor);
+			return false;
 		}
 	}
 	
 	
 	/**
-	 * Helper for recursion. Gets the tail (index 1 - size - 1) of the array.
+	 * Run the given Executor on a new virtual thread and wait for its result
+	 * 
+	 * <p>
+	 * 
+	 * A virtual thread stuck in an infinite loop can't be killed and keeps its carrier
+	 * thread busy, so after the first one this Tester goes back to pooled platform 
+	 * threads, which can be. (One that only ran a little long is let off.)
 	 * 
-	 * @param o  the array to get the tail from
-	 * @return   the tail of the array
+	 * @param executor  the Executor to run
+	 * @param timeout   the time (in ns) to wait for it
+	 * @return          whether or not the Executor finished in time
 	 */
-	private static Object[][] tail(Object[][] o) {
-		Object[][] ret = new Object[o.length - 1][];
-		for (int i = 0; i < ret.length; i++) {
-			ret[i] = o[i + 1];
+	private boolean runVirtual(Executor executor, long timeout) {
+		Thread thread = VirtualThreads.start(() -> executor.runOn(Thread.currentThread()));
+		if (await(executor, timeout)) {
+			return true;
+		}
+		else {
+			executor.cancel();
+			thread.interrupt();
+			// give it a grace period before deciding it's really stuck
+			if (!await(executor, timeout)) {
+				mode = ExecutionMode.POOLED;
+			}
+			return false;
 		}
-		return ret;
 	}
 	
 	
 	/**
-	 * Helper for recursion. Concatenates the two arrays
+	 * wait for the given Executor to finish
 	 * 
-	 * @param o1  The first array to be concatenated
-	 * @param o2  The second array to be concatenated
-	 * @return    The concatenation of both arrays
+	 * @param executor  the Executor to wait for
+	 * @param timeout   the longest time (in ns) to wait
+	 * @return          whether or not the Executor finished in time
 	 */
-	private static Object[] concat(Object[] o1, Object[] o2) {
-		Object[] ret = new Object[o1.length + o2.length];
-		for (int i = 0; i < ret.length; i++) {
-			if (i < o1.length) {
-				ret[i] = o1[i];
-			}
-			else {
-				ret[i] = o2[i - o1.length];
-			}
+	private static boolean await(Executor executor, long timeout) {
+		try {
+			return executor.await(timeout);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+			return executor.isFinished();
 		}
-		return ret;
 	}
 	
-	
 	/**
-	 * Get the total number of combinations of the elements of the given arrays
+	 * Helper method to get the name of the method qualified with its parameter types
+	 * (to support overloading)
 	 * 
-	 * @param arrays  the set of arrays to combine
-	 * @return        the number of combinations of the elements in the arrays
+	 * <p>
+	 * 
+	 * method names are formatted according to '$name($type1, $type2, ...)
+	 * example:
+	 *     add(int, int)
+	 * Generic arguments are Objects under the hood:
+	 *     add(T element) becomes add(Object)
+	 *     
+	 * This was a horrible design choice. Truly just the worst.
+	 * 
+	 * @param f  the method whose name is to be gotten
+	 * @return   the formatted name of the method
 	 */
-	private static int numCombos(Object[]... arrays) {
-		int total = 1;
-		for (Object[] l : arrays) {
-			total *= l.length;
+	static String getMethodName(Method f) {
+		StringBuilder ret = new StringBuilder();
+		
+		ret.append(f.getName()).append('(');
+		Class<?>[] types = f.getParameterTypes();
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0) {
+				ret.append(", ");
+			}
+			String p = types[i].toString();
+			ret.append(p, p.lastIndexOf('.') + 1, p.length());
 		}
-		return total;
+		ret.append(')');
+		
+		return ret.toString();
 	}
 	
 	
@@ -0,0 +1,139 @@
+package testbed;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+
+/**
+ * A ResultSink that writes the usual human-readable report to a Writer
+ * (the console, a file, ...)
+ * 
+ * <p>
+ * 
+ * Output is buffered and flushed at the end of every TestCase, so memory 
+ * stays constant however long the run is and progress shows up case by case.
+ * 
+ * @author michael
+ *
+ */
+public class TextSink implements ResultSink {
+	
+	// where the report goes
+	private final Writer out;
+	
+	
+	/**
+	 * create a new TextSink that writes to the given Writer
+	 * 
+	 * @param out  where to write the report
+	 */
+	public TextSink(Writer out) {
+		this.out = new BufferedWriter(out);
+	}
+	
+	
+	@Override
+	public void pass(String description, Result achieved) {
+		write(description + " | PASS: " + achieved + "\n");
+	}
+	
+	@Override
+	public void fail(String description, Result achieved, Result expected) {
+		Object achObject = achieved.getResult();
+		
+		write(description + " | **** FAIL:     " + achieved + "\n");
+		write(description + " |      Expected: " + expected + "\n");
+		
+		// print the stack trace
+		if (achObject instanceof Exception && !(achObject instanceof InfiniteLoopException)) {
+			write("   " + stackTrace((Throwable) achObject) + "\n");
+		}
+	}
+	
+	@Override
+	public void budgetPass(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		write(description + " | PASS: " + methodName + " " + outcome.getMeasured() + " within " + budget + "\n");
+	}
+	
+	@Override
+	public void budgetFail(String description, String methodName, PerformanceBudget budget, PerformanceBudget.Outcome outcome) {
+		write(description + " | **** OVER BUDGET: " + methodName + " " + outcome.getMeasured() + "\n");
+		write(description + " |           Budget: " + budget + "\n");
+	}
+	
+	@Override
+	public void caseDone(String description) {
+		flush();
+	}
+	
+	@Override
+	public void summary(int total, int passes, int failures) {
+		DecimalFormat df = new DecimalFormat("0.00");
+		write("\n Total: " + total 
+			+ "\nPassed: " + passes 
+			+ " (" + df.format((double) passes / (double) total * 100.0)
+			+ "%)\nFailed: " + failures + "\n");
+		flush();
+	}
+	
+	
+	/**
+	 * get the relevant part of the stack trace of the given Throwable
+	 * 
+	 * @param t  the Throwable
+	 * @return   its stack trace, without the frames of the testbed and reflection
+	 */
+	static String stackTrace(Throwable t) {
+		// this is really the only way to get a stacktrace as a String /ugly
+		StringWriter sWriter = new StringWriter();
+		PrintWriter pWriter = new PrintWriter(sWriter);
+		t.printStackTrace(pWriter);
+		String stackTrace = sWriter.toString();
+		
+		// Cut off irrelevant parts of the call stack
+		if (stackTrace.contains("at sun.")) {
+			stackTrace = stackTrace.substring(0, stackTrace.indexOf("at sun."));
+		}
+		if (stackTrace.contains("at testbed.Tester")) {
+			stackTrace = stackTrace.substring(0, stackTrace.indexOf("at testbed.Tester"));
+		}
+		if (stackTrace.contains("at testbed.Invoker")) {
+			stackTrace = stackTrace.substring(0, stackTrace.indexOf("at testbed.Invoker"));
+		}
+		if (stackTrace.contains("at testbed.MethodCatalog")) {
+			stackTrace = stackTrace.substring(0, stackTrace.indexOf("at testbed.MethodCatalog"));
+		}
+		if (stackTrace.contains("at testbed.Executor")) {
+			stackTrace = stackTrace.substring(0, stackTrace.indexOf("at testbed.Executor"));
+		}
+		
+		return stackTrace;
+	}
+	
+	
+	/**
+	 * write the given text to the report
+	 */
+	private void write(String s) {
+		try {
+			out.write(s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * push everything buffered so far out to the Writer
+	 */
+	private void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
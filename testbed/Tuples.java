@@ -0,0 +1,115 @@
+package testbed;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The parameter tuples a method is invoked with: every combination of its
+ * domains, or a covering array of them if it's tested with a strength.
+ * Tuples are made one at a time, as they're asked for, so a method tested
+ * over millions of combinations never has them all in memory at once; a
+ * tuple only lives as long as the Result that was invoked with it.
+ *
+ * @author michael
+ *
+ */
+class Tuples implements Iterable<Object[]> {
+
+	// where the tuples come from
+	private final Iterable<Object[]> source;
+	// how many there are
+	private final long count;
+
+
+	private Tuples(Iterable<Object[]> source, long count) {
+		this.source = source;
+		this.count = count;
+	}
+
+
+	/**
+	 * get the tuples to invoke the given method with
+	 *
+	 * @param method    the (cataloged) method to invoke
+	 * @param strength  the strength of the covering array to draw parameters from
+	 *                  (0 to use every combination)
+	 * @param params    the domains of the parameters of the method
+	 * @return          the tuples (a single null if there are no params to use)
+	 * @throws IllegalArgumentException  if there isn't a domain for every parameter
+	 */
+	static Tuples of(MethodCatalog.Entry method, int strength, Object[]... params) {
+		// if there are params to use, use them
+		if (params != null && params[0] != null) {
+			if (method.getParameterCount() != params.length) {
+				throw new IllegalArgumentException(method.getMethod().getName() + " was called with the wrong number of parameters");
+			}
+			// The params passed to this function are the domains of each parameter.
+			// It is intended that all possible combinations of these domains are tested,
+			// unless the method is to be tested with a covering array.
+			if (strength > 0 && strength < params.length) {
+				CoveringArray covering = new CoveringArray(strength, params);
+				return new Tuples(covering, covering.count());
+			}
+			Combinations all = new Combinations(params);
+			return new Tuples(all, all.count());
+		}
+		// else call the function with no parameters
+		if (method.getParameterCount() != 0) {
+			throw new IllegalArgumentException(method.getMethod().getName() + " was called with the wrong number of parameters");
+		}
+		return new Tuples(Collections.singletonList((Object[]) null), 1);
+	}
+
+
+	/**
+	 * get the number of tuples
+	 *
+	 * @return  the count (Long.MAX_VALUE if there are more than that)
+	 */
+	long count() {
+		return count;
+	}
+
+	/**
+	 * get an Iterator over the tuples, in order
+	 */
+	@Override
+	public Iterator<Object[]> iterator() {
+		return source.iterator();
+	}
+
+	/**
+	 * get an Iterator over the tuples from the given one on
+	 *
+	 * @param from  the index of the first tuple
+	 * @return      the Iterator
+	 */
+	Iterator<Object[]> iterator(long from) {
+		Iterator<Object[]> it = source.iterator();
+		for (long i = 0; i < from && it.hasNext(); i++) {
+			it.next();
+		}
+		return it;
+	}
+
+	/**
+	 * take up to the given number of tuples from an Iterator
+	 *
+	 * @param it   the Iterator
+	 * @param max  the most tuples to take
+	 * @return     the tuples taken (as many as it had, up to max)
+	 */
+	static Object[][] take(Iterator<Object[]> it, int max) {
+		Object[][] chunk = new Object[max][];
+		int n = 0;
+		while (n < max && it.hasNext()) {
+			chunk[n++] = it.next();
+		}
+		if (n < max) {
+			Object[][] shorter = new Object[n][];
+			System.arraycopy(chunk, 0, shorter, 0, n);
+			return shorter;
+		}
+		return chunk;
+	}
+}
@@ -0,0 +1,65 @@
+package testbed;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads without requiring a JDK that has them.
+ * 
+ * <p>
+ * 
+ * Thread.ofVirtual() only exists on JDK 21 and up, so it is looked up
+ * reflectively once and everything else goes through a plain ThreadFactory.
+ * 
+ * @author michael
+ *
+ */
+class VirtualThreads {
+	
+	// the factory for virtual threads, or null if the JVM has none
+	private static final ThreadFactory FACTORY = lookupFactory();
+	
+	
+	private VirtualThreads() {}
+	
+	
+	/**
+	 * determine whether the running JVM supports virtual threads
+	 * 
+	 * @return  whether or not virtual threads are available
+	 */
+	static boolean isSupported() {
+		return FACTORY != null;
+	}
+	
+	/**
+	 * create and start a new virtual thread running the given task
+	 * 
+	 * @param task  the task to run
+	 * @return      the started thread
+	 */
+	static Thread start(Runnable task) {
+		if (FACTORY == null) {
+			throw new UnsupportedOperationException("virtual threads need JDK 21 or newer");
+		}
+		Thread t = FACTORY.newThread(task);
+		t.start();
+		return t;
+	}
+	
+	
+	/**
+	 * find the ThreadFactory behind Thread.ofVirtual().factory()
+	 * 
+	 * @return  the virtual thread factory, or null if there isn't one
+	 */
+	private static ThreadFactory lookupFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			// go through the public interface; the builder class itself isn't exported
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package testbed;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of long-lived worker threads that run Executors taken
+ * from a shared queue.
+ *
+ * <p>
+ *
+ * Starting a new thread for every single method invocation gets expensive
+ * once a DomainSet expands into tens of thousands of combinations. The
+ * workers here are reused until one of them gets stuck in an infinite
+ * loop, at which point it is abandoned (killed) and a fresh worker takes
+ * its place.
+ *
+ * @author michael
+ *
+ */
+public class WorkerPool {
+
+	// the Executors (and Batches) waiting to be run
+	private final BlockingQueue<Job> tasks;
+	// used to give the workers readable names
+	private final AtomicInteger created;
+	// the number of workers that haven't been abandoned
+	private int live;
+
+
+	/**
+	 * create a new WorkerPool with the given number of workers
+	 *
+	 * @param size  the number of workers to keep alive
+	 */
+	public WorkerPool(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("a WorkerPool needs at least one worker");
+		}
+		this.tasks = new LinkedBlockingQueue<Job>();
+		this.created = new AtomicInteger();
+		for (int i = 0; i < size; i++) {
+			startWorker();
+		}
+	}
+
+
+	/**
+	 * start more workers, if needed, so that at least the given number
+	 * of Executors can run at once
+	 *
+	 * @param size  the number of workers needed
+	 */
+	public synchronized void ensureWorkers(int size) {
+		while (live < size) {
+			startWorker();
+		}
+	}
+
+
+	/**
+	 * queue the given Executor to be run by the next free worker
+	 *
+	 * @param executor  the Executor to run
+	 */
+	public void submit(Executor executor) {
+		tasks.add(executor);
+	}
+	
+	/**
+	 * queue the given Batch to be run by the next free worker
+	 *
+	 * @param batch  the Batch to run
+	 */
+	void submit(Batch batch) {
+		tasks.add(batch);
+	}
+
+
+	/**
+	 * give up on the given Executor. If it hasn't been picked up yet it
+	 * never will be; if a worker is running it, that worker is killed
+	 * and replaced.
+	 *
+	 * @param executor  the Executor that took too long
+	 */
+	public void abandon(Executor executor) {
+		abandon((Job) executor);
+	}
+	
+	/**
+	 * give up on the given Batch, same as an Executor (see above)
+	 *
+	 * @param batch  the Batch that took too long
+	 */
+	void abandon(Batch batch) {
+		abandon((Job) batch);
+	}
+	
+	@SuppressWarnings("deprecation")
+	private void abandon(Job job) {
+		Thread runner = job.cancel();
+		if (runner != null) {
+			synchronized (this) {
+				live--;
+				startWorker();
+			}
+			try {
+				// However deprecated, this is the only support in Java to kill an
+				// infinite loop in another thread.
+				runner.stop();
+			} catch (UnsupportedOperationException e) {
+				// newer JDKs refuse to stop threads; the best left to do is to ask
+				// nicely and let the (daemon) worker spin on its own
+				runner.interrupt();
+			}
+		}
+	}
+
+
+	/**
+	 * start a new worker thread
+	 */
+	private synchronized void startWorker() {
+		live++;
+		Worker w = new Worker("testbed-worker-" + created.incrementAndGet());
+		w.start();
+	}
+
+
+	/**
+	 * A thread that runs Executors from the queue until one of them
+	 * is abandoned
+	 *
+	 * @author michael
+	 *
+	 */
+	private class Worker extends Thread {
+
+		public Worker(String name) {
+			super(name);
+			// never keep the JVM alive just for the workers
+			setDaemon(true);
+		}
+
+
+		/**
+		 * take and run Executors until one of them is abandoned
+		 */
+		@Override
+		public void run() {
+			while (true) {
+				Job next;
+				try {
+					next = tasks.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				// a worker whose Executor was abandoned is about to be killed
+				if (!next.runOn(this)) {
+					return;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Something a worker can run: an Executor or a Batch
+	 *
+	 * @author michael
+	 *
+	 */
+	interface Job {
+
+		/**
+		 * run on the given worker thread, unless cancelled already
+		 *
+		 * @param worker  the thread calling this method
+		 * @return        false if cancelled while it ran (meaning the worker
+		 *                is about to be killed)
+		 */
+		boolean runOn(Thread worker);
+
+		/**
+		 * give up on this job. It won't be started if it hasn't been already.
+		 *
+		 * @return  the thread still running it, or null if it never started
+		 *          or has already finished
+		 */
+		Thread cancel();
+	}
+
+
+	// Lifeguards, not swimmers.
+}